@@ -0,0 +1,29 @@
+package com.tabeldata.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * connection to the database used by database benchmark, schema must be migrated already (start the server once).
+ * <pre>
+ * -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/oauth_benchmark
+ * -Dbenchmark.jdbc.username=oauth
+ * -Dbenchmark.jdbc.password=oauth
+ * </pre>
+ * Benchmark write and delete its own rows, don't point it to production database.
+ */
+public final class BenchmarkDataSource {
+
+    private BenchmarkDataSource() {
+    }
+
+    public static HikariDataSource create() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/oauth_benchmark"));
+        config.setUsername(System.getProperty("benchmark.jdbc.username", "oauth"));
+        config.setPassword(System.getProperty("benchmark.jdbc.password", "oauth"));
+        config.setMaximumPoolSize(Integer.getInteger("benchmark.jdbc.pool-size", 8));
+        config.setPoolName("benchmark");
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,61 @@
+package com.tabeldata.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.oauth2.provider.ClientDetails;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * set building of {@code OauthClientDetailsJdbcLoader.OauthClientDetailsModel}, every getter build a new set.
+ * {@code tokenRequest} is the lookups done by one password grant. Throughput, latency percentiles and allocation:
+ * <pre>
+ * java -jar target/benchmarks.jar ClientDetailsModelBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientDetailsModelBenchmark {
+
+    @Param({"2", "20"})
+    public int scopes;
+
+    private ClientDetails client;
+
+    @Setup
+    public void setUp() {
+        this.client = ClientFixtures.clientDetails("client-web", scopes);
+    }
+
+    @Benchmark
+    public Set<String> scope() {
+        return client.getScope();
+    }
+
+    @Benchmark
+    public Set<String> authorizedGrantTypes() {
+        return client.getAuthorizedGrantTypes();
+    }
+
+    @Benchmark
+    public Set<String> resourceIds() {
+        return client.getResourceIds();
+    }
+
+    /**
+     * token endpoint check grant type and scope, token service read validity and refresh token support
+     */
+    @Benchmark
+    public void tokenRequest(Blackhole blackhole) {
+        blackhole.consume(client.getAuthorizedGrantTypes().contains("password"));
+        blackhole.consume(client.getScope());
+        blackhole.consume(client.getAccessTokenValiditySeconds());
+        blackhole.consume(client.getAuthorizedGrantTypes().contains("refresh_token"));
+        blackhole.consume(client.getResourceIds());
+    }
+}
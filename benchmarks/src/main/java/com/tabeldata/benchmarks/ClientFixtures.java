@@ -0,0 +1,48 @@
+package com.tabeldata.benchmarks;
+
+import com.tabeldata.oauth.models.OauthApplication;
+import com.tabeldata.oauth.models.OauthClientDetails;
+import com.tabeldata.oauth.models.OauthGrantType;
+import com.tabeldata.oauth.models.OauthScope;
+import com.tabeldata.oauth.repository.OauthClientDetailsJdbcLoader.OauthClientDetailsModel;
+import org.springframework.security.oauth2.provider.ClientDetails;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * client shaped like the aggregate loaded by {@code OauthClientDetailsJdbcLoader}
+ */
+public final class ClientFixtures {
+
+    private ClientFixtures() {
+    }
+
+    public static OauthClientDetails client(String clientId, int scopes) {
+        List<OauthScope> scopeList = new ArrayList<>(scopes);
+        for (int i = 0; i < scopes; i++) {
+            scopeList.add(new OauthScope(i, "scope-" + i, "benchmark", null, null, null));
+        }
+        List<OauthGrantType> grantTypes = Arrays.asList(
+                new OauthGrantType(1, "password", null),
+                new OauthGrantType(2, "authorization_code", null),
+                new OauthGrantType(3, "refresh_token", null),
+                new OauthGrantType(4, "implicit", null));
+        List<OauthApplication> applications = Arrays.asList(
+                new OauthApplication("app-1", "resource-api", "benchmark", null, null, null),
+                new OauthApplication("app-2", "menu-api", "benchmark", null, null, null));
+        return new OauthClientDetails(
+                clientId, clientId, "{noop}secret", true, 43200, "benchmark", null, null, null,
+                Arrays.asList("http://localhost:8080/login", "http://localhost:4200/callback"),
+                Collections.emptyList(),
+                grantTypes,
+                scopeList,
+                applications);
+    }
+
+    public static ClientDetails clientDetails(String clientId, int scopes) {
+        return new OauthClientDetailsModel(client(clientId, scopes));
+    }
+}
@@ -0,0 +1,109 @@
+package com.tabeldata.benchmarks;
+
+import com.tabeldata.oauth.models.OauthStoredAccessToken;
+import com.tabeldata.oauth.repository.JdbcTokenStoreCustomizer;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link JdbcTokenStoreCustomizer} stand-in keeping rows in memory, for benchmark of token service without database.
+ * Token key, authentication key and codec are the same as the jdbc store, so only the round trip is left out.
+ */
+public class InMemoryTokenStore extends JdbcTokenStoreCustomizer {
+
+    private final AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+    private final Map<String, Row> accessTokens = new ConcurrentHashMap<>();
+    private final Map<String, String> accessTokenByAuthentication = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> refreshTokens = new ConcurrentHashMap<>();
+
+    public InMemoryTokenStore() {
+        super(new DriverManagerDataSource());
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        String tokenId = this.accessTokenByAuthentication.get(this.authenticationKeyGenerator.extractKey(authentication));
+        Row row = tokenId != null ? this.accessTokens.get(tokenId) : null;
+        return row != null ? this.deserializeAccessToken(row.token) : null;
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        String tokenId = this.extractTokenKey(token.getValue());
+        String authId = this.authenticationKeyGenerator.extractKey(authentication);
+        this.accessTokens.put(tokenId, new Row(
+                authId, this.serializeAccessToken(token), this.serializeAuthentication(authentication)));
+        String previous = this.accessTokenByAuthentication.put(authId, tokenId);
+        if (previous != null && !previous.equals(tokenId)) {
+            this.accessTokens.remove(previous);
+        }
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        Row row = this.accessTokens.get(this.extractTokenKey(tokenValue));
+        return row != null ? this.deserializeAccessToken(row.token) : null;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        Row row = this.accessTokens.get(this.extractTokenKey(token));
+        return row != null ? this.deserializeAuthentication(row.authentication) : null;
+    }
+
+    @Override
+    public OauthStoredAccessToken readAccessTokenWithAuthentication(String tokenValue) {
+        Row row = this.accessTokens.get(this.extractTokenKey(tokenValue));
+        if (row == null) {
+            return null;
+        }
+        return new OauthStoredAccessToken(
+                this.deserializeAccessToken(row.token), this.deserializeAuthentication(row.authentication));
+    }
+
+    @Override
+    public void removeAccessToken(String tokenValue) {
+        Row row = this.accessTokens.remove(this.extractTokenKey(tokenValue));
+        if (row != null) {
+            this.accessTokenByAuthentication.remove(row.authId);
+        }
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        this.removeAccessToken(token.getValue());
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        this.refreshTokens.put(this.extractTokenKey(refreshToken.getValue()), this.serializeRefreshToken(refreshToken));
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        this.refreshTokens.remove(this.extractTokenKey(token.getValue()));
+    }
+
+    public int size() {
+        return this.accessTokens.size();
+    }
+
+    private static final class Row {
+        private final String authId;
+        private final byte[] token;
+        private final byte[] authentication;
+
+        private Row(String authId, byte[] token, byte[] authentication) {
+            this.authId = authId;
+            this.token = token;
+            this.authentication = authentication;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.tabeldata.benchmarks;
+
+import com.tabeldata.oauth.JwtAccessTokenCustomConverter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * jwt signing on issue ({@code enhance}) and verify + read authentication on resource server ({@code decode}),
+ * {@code hmac} is the default {@code oauth.jwt.signing-key}, {@code rsa} the key store setup.
+ * <pre>
+ * java -jar target/benchmarks.jar JwtAccessTokenConverterBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAccessTokenConverterBenchmark {
+
+    @Param({"hmac", "rsa"})
+    public String signing;
+
+    private JwtAccessTokenCustomConverter converter;
+    private OAuth2AccessToken accessToken;
+    private OAuth2Authentication authentication;
+    private String jwt;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.converter = new JwtAccessTokenCustomConverter();
+        if ("rsa".equals(signing)) {
+            this.converter.setKeyPair(rsaKeyPair());
+        } else {
+            this.converter.setSigningKey("123");
+        }
+        this.converter.afterPropertiesSet();
+        this.accessToken = TokenFixtures.accessToken("admin");
+        this.authentication = TokenFixtures.authentication("client-web", "admin");
+        this.jwt = this.converter.enhance(accessToken, authentication).getValue();
+    }
+
+    private static java.security.KeyPair rsaKeyPair() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    @Benchmark
+    public OAuth2AccessToken enhance() {
+        return converter.enhance(accessToken, authentication);
+    }
+
+    @Benchmark
+    public Map<String, Object> decodeClaims() {
+        return converter.decodeClaims(jwt);
+    }
+
+    @Benchmark
+    public OAuth2Authentication decode() {
+        return converter.extractAuthentication(converter.decodeClaims(jwt));
+    }
+}
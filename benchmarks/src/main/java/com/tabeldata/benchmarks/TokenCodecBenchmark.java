@@ -0,0 +1,75 @@
+package com.tabeldata.benchmarks;
+
+import com.tabeldata.oauth.codec.CompactTokenCodec;
+import com.tabeldata.oauth.codec.JdkSerializationTokenCodec;
+import com.tabeldata.oauth.codec.TokenCodec;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * encode / decode cost of token codec, {@code accessTokenBytes} and {@code authenticationBytes} counter
+ * are the stored size of one token.
+ * <pre>
+ * java -jar target/benchmarks.jar TokenCodecBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenCodecBenchmark {
+
+    @Param({"jdk", "compact"})
+    public String codecName;
+
+    private TokenCodec codec;
+    private OAuth2AccessToken accessToken;
+    private OAuth2Authentication authentication;
+    private byte[] encodedAccessToken;
+    private byte[] encodedAuthentication;
+
+    @Setup
+    public void setUp() {
+        this.codec = "jdk".equals(codecName) ? new JdkSerializationTokenCodec() : new CompactTokenCodec();
+        this.accessToken = TokenFixtures.accessToken("admin");
+        this.authentication = TokenFixtures.authentication("client-code", "admin");
+        this.encodedAccessToken = codec.encodeAccessToken(accessToken);
+        this.encodedAuthentication = codec.encodeAuthentication(authentication);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long accessTokenBytes;
+        public long authenticationBytes;
+    }
+
+    @Benchmark
+    public byte[] encodeAccessToken(EncodedSize size) {
+        byte[] bytes = codec.encodeAccessToken(accessToken);
+        size.accessTokenBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public OAuth2AccessToken decodeAccessToken() {
+        return codec.decodeAccessToken(encodedAccessToken);
+    }
+
+    @Benchmark
+    public byte[] encodeAuthentication(EncodedSize size) {
+        byte[] bytes = codec.encodeAuthentication(authentication);
+        size.authenticationBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public OAuth2Authentication decodeAuthentication() {
+        return codec.decodeAuthentication(encodedAuthentication);
+    }
+}
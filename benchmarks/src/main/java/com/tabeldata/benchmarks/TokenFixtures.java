@@ -0,0 +1,56 @@
+package com.tabeldata.benchmarks;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.*;
+
+/**
+ * token and authentication shaped like the one issued by password grant of this server
+ */
+public final class TokenFixtures {
+
+    private TokenFixtures() {
+    }
+
+    public static DefaultOAuth2AccessToken accessToken(String username) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setExpiration(new Date(System.currentTimeMillis() + 3600_000L));
+        token.setScope(new LinkedHashSet<>(Arrays.asList("read", "write")));
+        token.setRefreshToken(new DefaultExpiringOAuth2RefreshToken(
+                UUID.randomUUID().toString(), new Date(System.currentTimeMillis() + 86400_000L)));
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("user_name", username);
+        info.put("authorities", Arrays.asList("ROLE_ADMIN", "ROLE_USER"));
+        token.setAdditionalInformation(info);
+        return token;
+    }
+
+    public static OAuth2Authentication authentication(String clientId, String username) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("grant_type", "password");
+        parameters.put("username", username);
+        OAuth2Request request = new OAuth2Request(
+                parameters,
+                clientId,
+                AuthorityUtils.createAuthorityList("ROLE_CLIENT"),
+                true,
+                new LinkedHashSet<>(Arrays.asList("read", "write")),
+                Collections.singleton("resource-api"),
+                null,
+                Collections.emptySet(),
+                Collections.emptyMap());
+        User principal = new User(username, "", AuthorityUtils.createAuthorityList("ROLE_ADMIN", "ROLE_USER"));
+        principal.eraseCredentials();
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities());
+        Map<String, String> details = new LinkedHashMap<>(parameters);
+        user.setDetails(details);
+        return new OAuth2Authentication(request, user);
+    }
+}
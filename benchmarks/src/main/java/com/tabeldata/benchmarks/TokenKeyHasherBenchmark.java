@@ -0,0 +1,75 @@
+package com.tabeldata.benchmarks;
+
+import com.tabeldata.oauth.repository.TokenKeyHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token key hashing, {@code legacyMd5} is the previous {@code extractTokenKey} implementation.
+ * Run with gc profiler to compare allocation per operation:
+ * <pre>
+ * java -jar target/benchmarks.jar TokenKeyHasherBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenKeyHasherBenchmark {
+
+    /**
+     * 36 is uuid token value, 900 is about the size of signed jwt
+     */
+    @Param({"36", "900"})
+    public int length;
+
+    private String value;
+    private final TokenKeyHasher md5 = new TokenKeyHasher(TokenKeyHasher.MD5);
+    private final TokenKeyHasher sha256 = new TokenKeyHasher(TokenKeyHasher.SHA_256);
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(UUID.randomUUID());
+        }
+        this.value = builder.substring(0, length);
+    }
+
+    @Benchmark
+    public String legacyMd5() throws Exception {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest(value.getBytes("UTF-8"));
+        return String.format("%032x", new BigInteger(1, bytes));
+    }
+
+    @Benchmark
+    public String md5() {
+        return md5.hash(value);
+    }
+
+    @Benchmark
+    public String sha256() {
+        return sha256.hash(value);
+    }
+
+    @Benchmark
+    public String sha256Uncached() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+        return String.format("%064x", new BigInteger(1, bytes));
+    }
+}
@@ -0,0 +1,104 @@
+package com.tabeldata.benchmarks;
+
+import com.tabeldata.oauth.JwtAccessTokenCustomConverter;
+import com.tabeldata.oauth.JwtTokenCustomAccessToken;
+import com.tabeldata.oauth.codec.CompactTokenCodec;
+import com.tabeldata.oauth.repository.TokenKeyHasher;
+import com.tabeldata.oauth.service.DefaultTokenService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DefaultTokenService} against {@link InMemoryTokenStore}: cpu cost of issuing and validating token
+ * without the database round trip. {@code issue} create a new token (and drop it, so the next call issue again),
+ * {@code reuse} is login of a user who still have a valid token, {@code loadAuthentication} is token validation.
+ * <pre>
+ * java -jar target/benchmarks.jar TokenServiceBenchmark -prof gc
+ * java -jar target/benchmarks.jar TokenServiceBenchmark -t 8
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenServiceBenchmark {
+
+    private static final String CLIENT_ID = "client-web";
+
+    /**
+     * {@code jwt} is the token enhancer chain of the server, {@code none} is plain uuid token
+     */
+    @Param({"none", "jwt"})
+    public String enhancer;
+
+    private InMemoryTokenStore tokenStore;
+    private DefaultTokenService tokenService;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.tokenStore = new InMemoryTokenStore();
+        this.tokenStore.setTokenCodec(new CompactTokenCodec());
+        this.tokenStore.setTokenKeyHasher(new TokenKeyHasher(TokenKeyHasher.MD5));
+
+        ClientDetails client = ClientFixtures.clientDetails(CLIENT_ID, 2);
+        this.tokenService = new DefaultTokenService(tokenStore, clientId -> client, tokenEnhancer(), null);
+        this.tokenService.afterPropertiesSet();
+    }
+
+    private TokenEnhancer tokenEnhancer() throws Exception {
+        if (!"jwt".equals(enhancer)) {
+            return null;
+        }
+
+        JwtAccessTokenCustomConverter converter = new JwtAccessTokenCustomConverter();
+        converter.setSigningKey("123");
+        converter.afterPropertiesSet();
+        TokenEnhancerChain chain = new TokenEnhancerChain();
+        chain.setTokenEnhancers(Arrays.asList(new JwtTokenCustomAccessToken(), converter));
+        return chain;
+    }
+
+    @State(Scope.Thread)
+    public static class User {
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        OAuth2Authentication issuing;
+        OAuth2Authentication loggedIn;
+        String tokenValue;
+
+        @Setup
+        public void setUp(TokenServiceBenchmark benchmark) {
+            int id = SEQUENCE.incrementAndGet();
+            this.issuing = TokenFixtures.authentication(CLIENT_ID, "issuing-user-" + id);
+            this.loggedIn = TokenFixtures.authentication(CLIENT_ID, "logged-in-user-" + id);
+            this.tokenValue = benchmark.tokenService.createAccessToken(this.loggedIn).getValue();
+        }
+    }
+
+    @Benchmark
+    public OAuth2AccessToken issue(User user) {
+        OAuth2AccessToken token = tokenService.createAccessToken(user.issuing);
+        tokenStore.removeAccessToken(token);
+        return token;
+    }
+
+    @Benchmark
+    public OAuth2AccessToken reuse(User user) {
+        return tokenService.createAccessToken(user.loggedIn);
+    }
+
+    @Benchmark
+    public OAuth2Authentication loadAuthentication(User user) {
+        return tokenService.loadAuthentication(user.tokenValue);
+    }
+}
@@ -0,0 +1,120 @@
+package com.tabeldata.benchmarks;
+
+import com.tabeldata.oauth.codec.CompactTokenCodec;
+import com.tabeldata.oauth.codec.TokenCodec;
+import com.tabeldata.oauth.repository.JdbcTokenStoreCustomizer;
+import com.tabeldata.oauth.repository.TokenKeyHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * latency of token store lookup while the token tables grow, it should stay flat with indexes in place.
+ * <p>
+ * Every trial seed {@code rows} access token (10 per user), refresh token and history spread over the last
+ * 12 months, with client id {@value #CLIENT_ID}, and delete them afterward. Needs a migrated database,
+ * see {@link BenchmarkDataSource}.
+ * <pre>
+ * java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/oauth_benchmark -jar target/benchmarks.jar TokenStoreLookupBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenStoreLookupBenchmark {
+
+    static final String CLIENT_ID = "benchmark-client";
+
+    private static final String seedAccessTokenSql = "insert into oauth.access_token (auth_id, token_id, token, user_name, client_id, authentication, refresh_token)\n" +
+            "select 'bench-' || i, md5('bench-token-' || i), ?, 'bench-user-' || (i / 10), ?, ?, md5('bench-refresh-' || i)\n" +
+            "from generate_series(1, ?) i";
+    private static final String seedRefreshTokenSql = "insert into oauth.refresh_token (token_id, token, authentication)\n" +
+            "select md5('bench-refresh-' || i), ?, ?\n" +
+            "from generate_series(1, ?) i";
+    private static final String seedHistoryAccessTokenSql = "insert into oauth.history_access_token (access_id, token, client_id, user_name, login_at)\n" +
+            "select md5('bench-token-' || i), ?, ?, 'bench-user-' || (i / 10), localtimestamp - (i % 365) * interval '1 day'\n" +
+            "from generate_series(1, ?) i";
+    private static final String countHistorySql = "select count(*)\n" +
+            "from oauth.history_access_token\n" +
+            "where access_id = ?\n" +
+            "  and is_logout = false";
+
+    @Param({"100000", "1000000", "5000000"})
+    public int rows;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcTokenStoreCustomizer tokenStore;
+    private final TokenKeyHasher tokenKeyHasher = new TokenKeyHasher(TokenKeyHasher.MD5);
+
+    @Setup(Level.Trial)
+    public void seed() {
+        this.dataSource = BenchmarkDataSource.create();
+        this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+        TokenCodec codec = new CompactTokenCodec();
+        this.tokenStore = new JdbcTokenStoreCustomizer(this.dataSource);
+        this.tokenStore.setTokenCodec(codec);
+
+        this.cleanUp();
+        byte[] token = codec.encodeAccessToken(TokenFixtures.accessToken("bench-user"));
+        byte[] refreshToken = codec.encodeRefreshToken(TokenFixtures.accessToken("bench-user").getRefreshToken());
+        byte[] authentication = codec.encodeAuthentication(TokenFixtures.authentication(CLIENT_ID, "bench-user"));
+        this.jdbcTemplate.update(seedAccessTokenSql, token, CLIENT_ID, authentication, this.rows);
+        this.jdbcTemplate.update(seedRefreshTokenSql, refreshToken, authentication, this.rows);
+        this.jdbcTemplate.update(seedHistoryAccessTokenSql, token, CLIENT_ID, this.rows);
+        this.jdbcTemplate.execute("analyze oauth.access_token");
+        this.jdbcTemplate.execute("analyze oauth.refresh_token");
+        this.jdbcTemplate.execute("analyze oauth.history_access_token");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.cleanUp();
+        this.dataSource.close();
+    }
+
+    private void cleanUp() {
+        this.jdbcTemplate.update("delete from oauth.refresh_token where token_id in (select refresh_token from oauth.access_token where client_id = ?)", CLIENT_ID);
+        this.jdbcTemplate.update("delete from oauth.access_token where client_id = ?", CLIENT_ID);
+        this.jdbcTemplate.update("delete from oauth.history_access_token where client_id = ?", CLIENT_ID);
+    }
+
+    private int randomRow() {
+        return ThreadLocalRandom.current().nextInt(1, this.rows + 1);
+    }
+
+    @Benchmark
+    public OAuth2AccessToken readAccessToken() {
+        return this.tokenStore.readAccessToken("bench-token-" + this.randomRow());
+    }
+
+    @Benchmark
+    public OAuth2Authentication readAuthentication() {
+        return this.tokenStore.readAuthentication("bench-token-" + this.randomRow());
+    }
+
+    @Benchmark
+    public OAuth2Authentication readAuthenticationForRefreshToken() {
+        return this.tokenStore.readAuthenticationForRefreshToken("bench-refresh-" + this.randomRow());
+    }
+
+    @Benchmark
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName() {
+        return this.tokenStore.findTokensByClientIdAndUserName(CLIENT_ID, "bench-user-" + (this.randomRow() / 10));
+    }
+
+    @Benchmark
+    public Integer historyByAccessId() {
+        return this.jdbcTemplate.queryForObject(
+                countHistorySql, Integer.class, this.tokenKeyHasher.hash("bench-token-" + this.randomRow()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.tabeldata.benchmarks.dataset;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * rows streamed into one table by postgres {@code COPY ... from stdin (format csv)}, buffered and sent in chunks
+ * so memory stay flat whatever the number of rows. {@code null} is written as empty unquoted field (csv null),
+ * {@code byte[]} as bytea hex.
+ */
+public class CopyWriter implements AutoCloseable {
+
+    private static final int FLUSH_CHARS = 1 << 20;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 64 * 1024);
+    private long rows = 0;
+    private boolean finished = false;
+
+    /**
+     * @param table   table name, for history the partition itself (copy doesn't go through the routing trigger)
+     * @param columns column list in the order of {@link #row(Object...)}
+     */
+    public CopyWriter(Connection connection, String table, String columns) throws SQLException {
+        this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("copy " + table + " (" + columns + ") from stdin with (format csv)");
+    }
+
+    public void row(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                this.buffer.append(',');
+            }
+            this.append(values[i]);
+        }
+        this.buffer.append('\n');
+        this.rows++;
+        if (this.buffer.length() >= FLUSH_CHARS) {
+            this.flush();
+        }
+    }
+
+    private void append(Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            this.buffer.append("\\x");
+            for (byte b : bytes) {
+                this.buffer.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+            }
+        } else if (value instanceof Timestamp || value instanceof Number || value instanceof Boolean) {
+            this.buffer.append(value);
+        } else {
+            String text = value.toString();
+            this.buffer.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    this.buffer.append('"');
+                }
+                this.buffer.append(c);
+            }
+            this.buffer.append('"');
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (this.buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = this.buffer.toString().getBytes(StandardCharsets.UTF_8);
+        this.copyIn.writeToCopy(bytes, 0, bytes.length);
+        this.buffer.setLength(0);
+    }
+
+    /**
+     * send the rest and end the copy, rows are visible after this (connection in auto commit)
+     */
+    public long finish() throws SQLException {
+        this.flush();
+        this.copyIn.endCopy();
+        this.finished = true;
+        return this.rows;
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * cancel the copy when it is not finished, nothing of it is stored
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!this.finished && this.copyIn.isActive()) {
+            this.copyIn.cancelCopy();
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package com.tabeldata.benchmarks.dataset;
+
+import com.tabeldata.benchmarks.BenchmarkDataSource;
+import com.tabeldata.oauth.codec.CompactTokenCodec;
+import com.tabeldata.oauth.codec.JdkSerializationTokenCodec;
+import com.tabeldata.oauth.codec.TokenCodec;
+import com.tabeldata.oauth.repository.TokenKeyHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * populate a local database with production like volume: users and privileges, clients and their join tables,
+ * live access token, months of access token history and deep menu trees. Rows are streamed by postgres
+ * {@code COPY}, tables (and chunks of token and history) in parallel, token blobs are real issued token encoded
+ * by the configured codec. Schema must be migrated already (start the server once), connection is
+ * {@code benchmark.jdbc.*} of {@link BenchmarkDataSource}:
+ * <pre>
+ * java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5433/tabeldata_auth \
+ *      -Dbenchmark.jdbc.username=tabeldata_auth -Dbenchmark.jdbc.password=tabeldata_auth \
+ *      -Ddataset.users=1000000 -Ddataset.access-tokens=200000 -Ddataset.history=30000000 \
+ *      -cp target/benchmarks.jar com.tabeldata.benchmarks.dataset.DatasetGenerator
+ * </pre>
+ * Generated user and client are named {@code <dataset.prefix>-user-<n>} and {@code <dataset.prefix>-client-<n>},
+ * the first {@code dataset.loginable} of them have password {@code dataset.password} / {@code dataset.client-secret}
+ * (e.g. for {@code LoadHarness}), the rest have unusable bcrypt-looking hash. {@code -Ddataset.clean=true} delete
+ * rows of the prefix first. Don't point it to production database.
+ */
+public class DatasetGenerator {
+
+    private static final String CREATED_BY = "dataset";
+    private static final char[] BCRYPT_ALPHABET =
+            "./ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    private final Settings settings;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService executor;
+    private final Map<String, Long> loaded = new ConcurrentSkipListMap<>();
+
+    private List<String> privileges;
+    private Map<String, List<String>> rolesByPrivilege;
+    private List<Integer> roles;
+    private List<String> scopeIds;
+    private Set<String> scopeNames;
+    private List<String> applications;
+    private List<Integer> grantTypes;
+    private final Map<Integer, List<GrantedAuthority>> authoritiesByMask = new ConcurrentHashMap<>();
+
+    public DatasetGenerator(Settings settings, HikariDataSource dataSource) {
+        this.settings = settings;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.executor = Executors.newFixedThreadPool(settings.getThreads());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        if (System.getProperty("benchmark.jdbc.pool-size") == null) {
+            System.setProperty("benchmark.jdbc.pool-size", String.valueOf(settings.getThreads() + 1));
+        }
+        try (HikariDataSource dataSource = BenchmarkDataSource.create()) {
+            new DatasetGenerator(settings, dataSource).generate();
+        }
+    }
+
+    public void generate() throws Exception {
+        long start = System.nanoTime();
+        try {
+            this.readReferenceData();
+            if (this.settings.isClean()) {
+                this.clean();
+            }
+
+            // users and privileges in one copy each: every statement on them refresh auth.user_roles
+            this.await(Arrays.asList(this::users, this::clients));
+            List<Callable<Long>> tasks = new ArrayList<>();
+            tasks.add(this::userPrivileges);
+            tasks.add(this::clientApplications);
+            tasks.add(this::clientGrantTypes);
+            tasks.add(this::clientScopes);
+            tasks.add(this::clientRedirectUris);
+            for (int client = 0; client < Math.min(this.settings.getMenuClients(), this.settings.getClients()); client++) {
+                int menuClient = client;
+                tasks.add(() -> this.menus(menuClient));
+            }
+            tasks.addAll(this.accessTokenTasks());
+            tasks.addAll(this.historyTasks());
+            this.await(tasks);
+
+            this.jdbcTemplate.execute("analyze");
+        } finally {
+            this.executor.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long total = 0;
+        for (Map.Entry<String, Long> entry : this.loaded.entrySet()) {
+            System.out.printf("%-45s %,12d rows%n", entry.getKey(), entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.printf("%,d rows in %.1f s, %,.0f rows/s%n", total, seconds, total / seconds);
+    }
+
+    private void readReferenceData() {
+        this.privileges = this.jdbcTemplate.queryForList("select id from auth.privileges order by id", String.class);
+        this.rolesByPrivilege = new HashMap<>();
+        this.jdbcTemplate.query(
+                "select authority.privilege_id, role.name\n" +
+                        "from auth.authorities authority\n" +
+                        "       join auth.roles role on role.id = authority.role_id",
+                rs -> {
+                    this.rolesByPrivilege.computeIfAbsent(rs.getString("privilege_id"), key -> new ArrayList<>())
+                            .add(rs.getString("name"));
+                });
+        this.roles = this.jdbcTemplate.queryForList("select id from auth.roles order by id", Integer.class);
+        this.scopeIds = this.jdbcTemplate.queryForList("select id from oauth.client_scopes order by name", String.class);
+        this.scopeNames = new LinkedHashSet<>(
+                this.jdbcTemplate.queryForList("select name from oauth.client_scopes order by name", String.class));
+        this.applications = this.jdbcTemplate.queryForList("select id from resource.applications order by id", String.class);
+        this.grantTypes = this.jdbcTemplate.queryForList(
+                "select id from oauth.grant_types where name in ('password', 'refresh_token', 'authorization_code') order by id",
+                Integer.class);
+        if (this.privileges.isEmpty() || this.roles.isEmpty() || this.applications.isEmpty()) {
+            throw new IllegalStateException("privileges, roles and applications are empty, is the schema migrated?");
+        }
+    }
+
+    private void clean() {
+        String pattern = this.settings.getPrefix() + "-%";
+        this.log("clean", this.jdbcTemplate.update("delete from oauth.history_access_token where user_name like ?", pattern));
+        this.log("clean", this.jdbcTemplate.update("delete from oauth.access_token where user_name like ?", pattern));
+        this.log("clean", this.jdbcTemplate.update("delete from component.menu where resource_id like ?", pattern));
+        this.log("clean", this.jdbcTemplate.update("delete from resource.client_details where id like ?", pattern));
+        this.log("clean", this.jdbcTemplate.update("delete from auth.users where id like ?", pattern));
+    }
+
+    private void await(List<Callable<Long>> tasks) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(tasks.size());
+        for (Callable<Long> task : tasks) {
+            futures.add(this.executor.submit(task));
+        }
+        try {
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private long copy(String table, String columns, RowSource source) throws Exception {
+        try (Connection connection = this.dataSource.getConnection();
+             CopyWriter writer = new CopyWriter(connection, table, columns)) {
+            source.write(writer);
+            long rows = writer.finish();
+            this.loaded.merge(table, rows, Long::sum);
+            this.log(table, rows);
+            return rows;
+        }
+    }
+
+    private void log(String table, long rows) {
+        System.out.printf("%s %,d rows%n", table, rows);
+    }
+
+    // auth
+
+    private String username(int user) {
+        return this.settings.getPrefix() + "-user-" + user;
+    }
+
+    /**
+     * user n has privilege j when n is multiple of 2^j: every user the first, half the second, and so on
+     */
+    private int privilegeMask(int user) {
+        int mask = 0;
+        for (int j = 0; j < this.privileges.size() && j < 31; j++) {
+            if (user % (1 << j) == 0) {
+                mask |= 1 << j;
+            }
+        }
+        return mask;
+    }
+
+    private List<GrantedAuthority> authorities(int user) {
+        return this.authoritiesByMask.computeIfAbsent(this.privilegeMask(user), mask -> {
+            Set<String> names = new TreeSet<>();
+            for (int j = 0; j < this.privileges.size() && j < 31; j++) {
+                if ((mask & (1 << j)) != 0) {
+                    names.addAll(this.rolesByPrivilege.getOrDefault(this.privileges.get(j), Collections.emptyList()));
+                }
+            }
+            return AuthorityUtils.createAuthorityList(names.toArray(new String[0]));
+        });
+    }
+
+    private List<String> passwordHashes(int count, String rawPassword) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(this.settings.getBcryptStrength());
+        return IntStream.range(0, count).parallel()
+                .mapToObj(i -> encoder.encode(rawPassword))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * unique (the column is) but never match any password
+     */
+    private String unusableHash() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] hash = new char[53];
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] = BCRYPT_ALPHABET[random.nextInt(BCRYPT_ALPHABET.length)];
+        }
+        return String.format("$2a$%02d$%s", this.settings.getBcryptStrength(), new String(hash));
+    }
+
+    private long users() throws Exception {
+        List<String> loginable = this.passwordHashes(
+                Math.min(this.settings.getLoginable(), this.settings.getUsers()), this.settings.getPassword());
+        return this.copy("auth.users",
+                "id, username, email, password, is_active, is_keep_active, is_locked, is_sudo, login_failed_counter, created_by",
+                writer -> {
+                    for (int user = 0; user < this.settings.getUsers(); user++) {
+                        String username = this.username(user);
+                        writer.row(username, username, username + "@example.com",
+                                user < loginable.size() ? loginable.get(user) : this.unusableHash(),
+                                true, false, false, false, 0, CREATED_BY);
+                    }
+                });
+    }
+
+    private long userPrivileges() throws Exception {
+        return this.copy("auth.user_privileges", "id, privilege_id, user_id, created_by", writer -> {
+            for (int user = 0; user < this.settings.getUsers(); user++) {
+                int mask = this.privilegeMask(user);
+                for (int j = 0; j < this.privileges.size() && j < 31; j++) {
+                    if ((mask & (1 << j)) != 0) {
+                        writer.row(UUID.randomUUID().toString(), this.privileges.get(j), this.username(user), CREATED_BY);
+                    }
+                }
+            }
+        });
+    }
+
+    // resource
+
+    private String clientId(int client) {
+        return this.settings.getPrefix() + "-client-" + client;
+    }
+
+    private Set<String> resourceIds(int client) {
+        Set<String> resourceIds = new LinkedHashSet<>();
+        resourceIds.add(this.applications.get(client % this.applications.size()));
+        if (client % 3 == 0) {
+            resourceIds.add(this.applications.get((client + 1) % this.applications.size()));
+        }
+        return resourceIds;
+    }
+
+    private long clients() throws Exception {
+        List<String> loginable = this.passwordHashes(
+                Math.min(this.settings.getLoginable(), this.settings.getClients()), this.settings.getClientSecret());
+        return this.copy("resource.client_details",
+                "id, name, password, is_auto_approve, token_expired_in_second, created_by",
+                writer -> {
+                    for (int client = 0; client < this.settings.getClients(); client++) {
+                        writer.row(this.clientId(client), this.clientId(client),
+                                client < loginable.size() ? loginable.get(client) : this.unusableHash(),
+                                true, this.settings.getTokenValiditySeconds(), CREATED_BY);
+                    }
+                });
+    }
+
+    private long clientApplications() throws Exception {
+        return this.copy("resource.client_detail_applications", "id, client_detail_id, app_id, created_by", writer -> {
+            for (int client = 0; client < this.settings.getClients(); client++) {
+                for (String application : this.resourceIds(client)) {
+                    writer.row(UUID.randomUUID().toString(), this.clientId(client), application, CREATED_BY);
+                }
+            }
+        });
+    }
+
+    private long clientGrantTypes() throws Exception {
+        return this.copy("resource.client_detail_grant_types", "id, client_id, grant_type, created_by", writer -> {
+            for (int client = 0; client < this.settings.getClients(); client++) {
+                for (Integer grantType : this.grantTypes) {
+                    writer.row(UUID.randomUUID().toString(), this.clientId(client), grantType, CREATED_BY);
+                }
+            }
+        });
+    }
+
+    private long clientScopes() throws Exception {
+        return this.copy("resource.client_detail_scopes", "id, client_id, scope_id", writer -> {
+            for (int client = 0; client < this.settings.getClients(); client++) {
+                for (String scope : this.scopeIds) {
+                    writer.row(UUID.randomUUID().toString(), this.clientId(client), scope);
+                }
+            }
+        });
+    }
+
+    private long clientRedirectUris() throws Exception {
+        return this.copy("resource.client_detail_redirect_uris", "id, client_id, redirect_uri", writer -> {
+            for (int client = 0; client < this.settings.getClients(); client++) {
+                writer.row(UUID.randomUUID().toString(), this.clientId(client),
+                        "https://" + this.clientId(client) + ".example.com/login");
+                writer.row(UUID.randomUUID().toString(), this.clientId(client),
+                        "http://localhost:4200/" + this.clientId(client) + "/callback");
+            }
+        });
+    }
+
+    // component
+
+    /**
+     * tree of {@code dataset.menu.depth} levels, {@code dataset.menu.fanout} children each, written parent first
+     * (the parent foreign key is checked per row). Leaf mapped to a random role, root to every role.
+     */
+    private long menus(int client) throws Exception {
+        List<String[]> mappings = new ArrayList<>();
+        long menus = this.copy("component.menu", "id, title, path, is_menu, created_by, resource_id, parent_id",
+                writer -> this.menu(writer, client, null, "", 1, mappings));
+        this.copy("component.menu_mapping_by_role", "id, role_id, menu_id, created_by", writer -> {
+            for (String[] mapping : mappings) {
+                writer.row(UUID.randomUUID().toString(), Integer.valueOf(mapping[0]), mapping[1], CREATED_BY);
+            }
+        });
+        return menus;
+    }
+
+    private void menu(CopyWriter writer, int client, String parentId, String number, int level, List<String[]> mappings)
+            throws Exception {
+        boolean leaf = level == this.settings.getMenuDepth();
+        for (int i = 1; i <= this.settings.getMenuFanout(); i++) {
+            String id = UUID.randomUUID().toString();
+            String childNumber = number.isEmpty() ? String.valueOf(i) : number + "." + i;
+            writer.row(id, "Menu " + childNumber, "/m" + i, !leaf, CREATED_BY, this.clientId(client), parentId);
+            if (parentId == null) {
+                for (Integer role : this.roles) {
+                    mappings.add(new String[]{String.valueOf(role), id});
+                }
+            } else if (leaf) {
+                Integer role = this.roles.get(ThreadLocalRandom.current().nextInt(this.roles.size()));
+                mappings.add(new String[]{String.valueOf(role), id});
+            }
+            if (!leaf) {
+                this.menu(writer, client, id, childNumber, level + 1, mappings);
+            }
+        }
+    }
+
+    // oauth
+
+    private TokenRowFactory tokenRowFactory() throws Exception {
+        TokenCodec codec = "jdk".equalsIgnoreCase(this.settings.getCodec())
+                ? new JdkSerializationTokenCodec() : new CompactTokenCodec();
+        return new TokenRowFactory(codec, new TokenKeyHasher(this.settings.getKeyAlgorithm()), this.settings.getSigningKey());
+    }
+
+    private String ipAddress() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+    }
+
+    private TokenRowFactory.TokenRow token(TokenRowFactory factory, int user, int client, long loginAtMillis) {
+        return factory.create(this.username(user), this.authorities(user), this.clientId(client),
+                this.scopeNames, this.resourceIds(client), loginAtMillis, this.settings.getTokenValiditySeconds());
+    }
+
+    /**
+     * one token per user and client (auth_id is unique): token i belong to client i mod clients, spread over users
+     */
+    private List<Callable<Long>> accessTokenTasks() {
+        long capacity = (long) this.settings.getUsers() * this.settings.getClients();
+        int total = (int) Math.min(this.settings.getAccessTokens(), capacity);
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int from = 0; from < total; from += this.settings.getChunkRows()) {
+            int start = from;
+            int end = Math.min(total, from + this.settings.getChunkRows());
+            tasks.add(() -> this.accessTokens(start, end));
+        }
+        return tasks;
+    }
+
+    private long accessTokens(int from, int to) throws Exception {
+        TokenRowFactory factory = this.tokenRowFactory();
+        long now = System.currentTimeMillis();
+        long window = Math.max(1, this.settings.getTokenValiditySeconds()) * 1000L;
+        return this.copy("oauth.access_token",
+                "auth_id, token_id, token, user_name, client_id, authentication, refresh_token, ip_address, login_at, expires_at",
+                writer -> {
+                    for (int i = from; i < to; i++) {
+                        int client = i % this.settings.getClients();
+                        int user = (i / this.settings.getClients()) % this.settings.getUsers();
+                        long loginAt = now - ThreadLocalRandom.current().nextLong(window);
+                        TokenRowFactory.TokenRow row = this.token(factory, user, client, loginAt);
+                        writer.row(row.getAuthId(), row.getTokenId(), row.getToken(), this.username(user),
+                                this.clientId(client), row.getAuthentication(), row.getRefreshTokenId(),
+                                this.ipAddress(), row.getLoginAt(), row.getExpiresAt());
+                    }
+                });
+    }
+
+    /**
+     * history of the last {@code dataset.history.months} months, copied straight into the monthly partition
+     * (the routing trigger of the parent would run per row), chunks of one month in parallel
+     */
+    private List<Callable<Long>> historyTasks() {
+        int months = Math.max(1, this.settings.getHistoryMonths());
+        long perMonth = this.settings.getHistory() / months;
+        LocalDateTime currentMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        long now = System.currentTimeMillis();
+
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int k = 0; k < months; k++) {
+            LocalDateTime month = currentMonth.minusMonths(k);
+            long rows = perMonth + (k == 0 ? this.settings.getHistory() % months : 0);
+            if (rows == 0) {
+                continue;
+            }
+            String partition = this.jdbcTemplate.queryForObject(
+                    "select oauth.create_history_access_token_partition(?)", String.class, Timestamp.valueOf(month));
+            long startMillis = month.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            long endMillis = Math.min(now, month.plusMonths(1).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            for (long from = 0; from < rows; from += this.settings.getChunkRows()) {
+                long count = Math.min(this.settings.getChunkRows(), rows - from);
+                tasks.add(() -> this.history("oauth." + partition, count, startMillis, endMillis, now));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * logged out by the user most of the time, replaced by next login ({@code timeout}) or just expired otherwise,
+     * never logged out in the future
+     */
+    private long history(String partition, long count, long startMillis, long endMillis, long now) throws Exception {
+        TokenRowFactory factory = this.tokenRowFactory();
+        return this.copy(partition,
+                "id, access_id, token, client_id, ip_address, user_name, login_at, expires_at, is_logout, logout_at, logout_by",
+                writer -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (long i = 0; i < count; i++) {
+                        int user = random.nextInt(this.settings.getUsers());
+                        int client = random.nextInt(this.settings.getClients());
+                        long loginAt = startMillis + random.nextLong(Math.max(1, endMillis - startMillis));
+                        TokenRowFactory.TokenRow row = this.token(factory, user, client, loginAt);
+                        String username = this.username(user);
+
+                        int outcome = random.nextInt(10);
+                        long validity = row.getExpiresAt() != null ? row.getExpiresAt().getTime() - loginAt : 3600_000L;
+                        Timestamp logoutAt = null;
+                        String logoutBy = null;
+                        if (outcome < 6) {
+                            logoutAt = new Timestamp(loginAt + random.nextLong(Math.max(1, validity)));
+                            logoutBy = username;
+                        } else if (outcome < 9) {
+                            logoutAt = new Timestamp(loginAt + validity);
+                            logoutBy = "timeout";
+                        }
+                        if (logoutAt != null && logoutAt.getTime() > now) {
+                            logoutAt = null;
+                            logoutBy = null;
+                        }
+                        writer.row(UUID.randomUUID().toString(), row.getTokenId(), row.getToken(), this.clientId(client),
+                                this.ipAddress(), username, row.getLoginAt(), row.getExpiresAt(),
+                                logoutAt != null, logoutAt, logoutBy);
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        void write(CopyWriter writer) throws Exception;
+    }
+
+    /**
+     * {@code -Ddataset.*} system properties
+     */
+    public static class Settings {
+        private final String prefix = System.getProperty("dataset.prefix", "gen");
+        private final boolean clean = Boolean.getBoolean("dataset.clean");
+        private final int threads = Integer.getInteger("dataset.threads", Runtime.getRuntime().availableProcessors());
+        private final int chunkRows = Integer.getInteger("dataset.chunk-rows", 500_000);
+        private final int users = Integer.getInteger("dataset.users", 100_000);
+        private final int clients = Integer.getInteger("dataset.clients", 100);
+        private final int loginable = Integer.getInteger("dataset.loginable", 100);
+        private final String password = System.getProperty("dataset.password", "password");
+        private final String clientSecret = System.getProperty("dataset.client-secret", "123456");
+        private final int bcryptStrength = Integer.getInteger("dataset.bcrypt-strength", 11);
+        private final int tokenValiditySeconds = Integer.getInteger("dataset.token-validity-seconds", 43200);
+        private final long accessTokens = Long.getLong("dataset.access-tokens", 100_000L);
+        private final long history = Long.getLong("dataset.history", 10_000_000L);
+        private final int historyMonths = Integer.getInteger("dataset.history.months", 12);
+        private final int menuClients = Integer.getInteger("dataset.menu.clients", 5);
+        private final int menuDepth = Integer.getInteger("dataset.menu.depth", 6);
+        private final int menuFanout = Integer.getInteger("dataset.menu.fanout", 4);
+        private final String codec = System.getProperty("dataset.codec", "compact");
+        private final String keyAlgorithm = System.getProperty("dataset.key-algorithm", TokenKeyHasher.MD5);
+        private final String signingKey = System.getProperty("dataset.jwt.signing-key", "123");
+
+        public Settings() {
+            if (!this.prefix.matches("[a-z0-9]{1,10}")) {
+                throw new IllegalArgumentException("dataset.prefix must be 1 to 10 lowercase letters or digits: " + this.prefix);
+            }
+            if (this.users <= 0 || this.clients <= 0 || this.threads <= 0 || this.chunkRows <= 0) {
+                throw new IllegalArgumentException("dataset.users, clients, threads and chunk-rows must be positive");
+            }
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public boolean isClean() {
+            return clean;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getChunkRows() {
+            return chunkRows;
+        }
+
+        public int getUsers() {
+            return users;
+        }
+
+        public int getClients() {
+            return clients;
+        }
+
+        public int getLoginable() {
+            return loginable;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public String getClientSecret() {
+            return clientSecret;
+        }
+
+        public int getBcryptStrength() {
+            return bcryptStrength;
+        }
+
+        public int getTokenValiditySeconds() {
+            return tokenValiditySeconds;
+        }
+
+        public long getAccessTokens() {
+            return accessTokens;
+        }
+
+        public long getHistory() {
+            return history;
+        }
+
+        public int getHistoryMonths() {
+            return historyMonths;
+        }
+
+        public int getMenuClients() {
+            return menuClients;
+        }
+
+        public int getMenuDepth() {
+            return menuDepth;
+        }
+
+        public int getMenuFanout() {
+            return menuFanout;
+        }
+
+        public String getCodec() {
+            return codec;
+        }
+
+        public String getKeyAlgorithm() {
+            return keyAlgorithm;
+        }
+
+        public String getSigningKey() {
+            return signingKey;
+        }
+    }
+}
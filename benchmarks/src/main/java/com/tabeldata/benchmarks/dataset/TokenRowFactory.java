@@ -0,0 +1,126 @@
+package com.tabeldata.benchmarks.dataset;
+
+import com.tabeldata.oauth.JwtAccessTokenCustomConverter;
+import com.tabeldata.oauth.JwtTokenCustomAccessToken;
+import com.tabeldata.oauth.codec.TokenCodec;
+import com.tabeldata.oauth.repository.TokenKeyHasher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * access token as the server issue it by password grant: jwt value signed by the same converter, stored with
+ * the configured {@link TokenCodec} and {@link TokenKeyHasher}, so the store can read, validate and revoke it.
+ * Not thread safe, one per task.
+ */
+public class TokenRowFactory {
+
+    private static final long REFRESH_TOKEN_VALIDITY_MILLIS = 30L * 24 * 3600_000L;
+
+    private final TokenCodec codec;
+    private final TokenKeyHasher keyHasher;
+    private final JwtTokenCustomAccessToken customAccessToken = new JwtTokenCustomAccessToken();
+    private final JwtAccessTokenCustomConverter converter = new JwtAccessTokenCustomConverter();
+    private final AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+
+    public TokenRowFactory(TokenCodec codec, TokenKeyHasher keyHasher, String signingKey) throws Exception {
+        this.codec = codec;
+        this.keyHasher = keyHasher;
+        this.converter.setSigningKey(signingKey);
+        this.converter.afterPropertiesSet();
+    }
+
+    public TokenRow create(String username, List<GrantedAuthority> authorities, String clientId,
+                           Set<String> scopes, Set<String> resourceIds, long loginAtMillis, int validitySeconds) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("grant_type", "password");
+        parameters.put("username", username);
+        OAuth2Request request = new OAuth2Request(
+                parameters, clientId, Collections.emptyList(), true, scopes, resourceIds,
+                null, Collections.emptySet(), Collections.emptyMap());
+        User principal = new User(username, "", authorities);
+        principal.eraseCredentials();
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken(
+                principal, null, authorities);
+        user.setDetails(new LinkedHashMap<>(parameters));
+        OAuth2Authentication authentication = new OAuth2Authentication(request, user);
+
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setScope(scopes);
+        if (validitySeconds > 0) {
+            token.setExpiration(new Date(loginAtMillis + validitySeconds * 1000L));
+        }
+        token.setRefreshToken(new DefaultExpiringOAuth2RefreshToken(
+                UUID.randomUUID().toString(), new Date(loginAtMillis + REFRESH_TOKEN_VALIDITY_MILLIS)));
+        OAuth2AccessToken enhanced = this.converter.enhance(
+                this.customAccessToken.enhance(token, authentication), authentication);
+
+        return new TokenRow(
+                this.authenticationKeyGenerator.extractKey(authentication),
+                this.keyHasher.hash(enhanced.getValue()),
+                this.codec.encodeAccessToken(enhanced),
+                this.codec.encodeAuthentication(authentication),
+                this.keyHasher.hash(enhanced.getRefreshToken().getValue()),
+                new Timestamp(loginAtMillis),
+                enhanced.getExpiration() != null ? new Timestamp(enhanced.getExpiration().getTime()) : null);
+    }
+
+    public static class TokenRow {
+        private final String authId;
+        private final String tokenId;
+        private final byte[] token;
+        private final byte[] authentication;
+        private final String refreshTokenId;
+        private final Timestamp loginAt;
+        private final Timestamp expiresAt;
+
+        private TokenRow(String authId, String tokenId, byte[] token, byte[] authentication, String refreshTokenId,
+                         Timestamp loginAt, Timestamp expiresAt) {
+            this.authId = authId;
+            this.tokenId = tokenId;
+            this.token = token;
+            this.authentication = authentication;
+            this.refreshTokenId = refreshTokenId;
+            this.loginAt = loginAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getAuthId() {
+            return authId;
+        }
+
+        public String getTokenId() {
+            return tokenId;
+        }
+
+        public byte[] getToken() {
+            return token;
+        }
+
+        public byte[] getAuthentication() {
+            return authentication;
+        }
+
+        public String getRefreshTokenId() {
+            return refreshTokenId;
+        }
+
+        public Timestamp getLoginAt() {
+            return loginAt;
+        }
+
+        public Timestamp getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.tabeldata.benchmarks.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * throughput, p50, p99 and error rate of every operation from a previous run, stored as json.
+ * A run is a regression when throughput drop or p99 rise more than tolerance, or error rate rise more than margin.
+ * Baseline is only comparable with run of the same mix, users and hardware.
+ */
+public class LoadBaseline {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, Map<String, Double>> operations;
+
+    private LoadBaseline(Map<String, Map<String, Double>> operations) {
+        this.operations = operations;
+    }
+
+    public static LoadBaseline of(Collection<OperationStats.Result> results) {
+        Map<String, Map<String, Double>> operations = new LinkedHashMap<>();
+        for (OperationStats.Result result : results) {
+            Map<String, Double> values = new LinkedHashMap<>();
+            values.put("throughput", result.getThroughput());
+            values.put("p50Millis", result.percentileMillis(50));
+            values.put("p99Millis", result.percentileMillis(99));
+            values.put("errorRate", result.getErrorRate());
+            operations.put(result.getOperation().key(), values);
+        }
+        return new LoadBaseline(operations);
+    }
+
+    public static LoadBaseline read(File file) throws IOException {
+        return new LoadBaseline(MAPPER.readValue(file, new TypeReference<LinkedHashMap<String, Map<String, Double>>>() {
+        }));
+    }
+
+    public void write(File file) throws IOException {
+        MAPPER.writeValue(file, this.operations);
+    }
+
+    /**
+     * @return regression messages, empty when the run is as good as baseline
+     */
+    public List<String> compare(Collection<OperationStats.Result> results, double tolerance, double errorRateMargin) {
+        List<String> regressions = new ArrayList<>();
+        for (OperationStats.Result result : results) {
+            String key = result.getOperation().key();
+            Map<String, Double> baseline = this.operations.get(key);
+            if (baseline == null || result.getCount() == 0) {
+                continue;
+            }
+
+            double throughput = baseline.getOrDefault("throughput", 0d);
+            if (result.getThroughput() < throughput * (1 - tolerance)) {
+                regressions.add(String.format("%s throughput %.1f req/s, baseline %.1f req/s",
+                        key, result.getThroughput(), throughput));
+            }
+            double p99 = baseline.getOrDefault("p99Millis", Double.MAX_VALUE);
+            if (result.percentileMillis(99) > p99 * (1 + tolerance)) {
+                regressions.add(String.format("%s p99 %.2f ms, baseline %.2f ms",
+                        key, result.percentileMillis(99), p99));
+            }
+            double errorRate = baseline.getOrDefault("errorRate", 0d);
+            if (result.getErrorRate() > errorRate + errorRateMargin) {
+                regressions.add(String.format("%s error rate %.2f%%, baseline %.2f%%",
+                        key, result.getErrorRate() * 100, errorRate * 100));
+            }
+        }
+        return regressions;
+    }
+}
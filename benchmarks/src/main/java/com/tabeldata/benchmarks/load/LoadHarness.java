@@ -0,0 +1,231 @@
+package com.tabeldata.benchmarks.load;
+
+import com.tabeldata.OauthSSOApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * concurrent load of virtual users against {@code /oauth/token} and protected {@code /api/**}, to find where
+ * the server saturate. Report throughput, latency percentiles (HdrHistogram) and error rate per operation,
+ * exit with 1 when it is worse than the stored baseline.
+ * <p>
+ * Without {@code load.url} the application is started in this jvm against {@code benchmark.jdbc.*}
+ * (flyway migrate the schema), otherwise the running server is used. Default client, users and module are the ones
+ * created by {@link com.tabeldata.benchmarks.dataset.DatasetGenerator} with its default {@code dataset.*}, run it first
+ * against the same database:
+ * <pre>
+ * docker-compose -f docker/compose-postgres.yml up -d postgres
+ * java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5433/tabeldata_auth \
+ *      -Dbenchmark.jdbc.username=tabeldata_auth -Dbenchmark.jdbc.password=tabeldata_auth \
+ *      -cp target/benchmarks.jar com.tabeldata.benchmarks.dataset.DatasetGenerator
+ * java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5433/tabeldata_auth \
+ *      -Dbenchmark.jdbc.username=tabeldata_auth -Dbenchmark.jdbc.password=tabeldata_auth \
+ *      -Dload.users=64 -Dload.duration-seconds=60 -Dload.mix=login=10,validate=70,revoke=5,datatables=15 \
+ *      -cp target/benchmarks.jar com.tabeldata.benchmarks.load.LoadHarness
+ * java -Dload.url=http://localhost:8080/tabeldata-oauth2-auth-server \
+ *      -Dload.baseline=load-baseline.json -Dload.baseline.write=true \
+ *      -cp target/benchmarks.jar com.tabeldata.benchmarks.load.LoadHarness
+ * </pre>
+ * Revoke and login write token rows, don't point it to production.
+ */
+public class LoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        ConfigurableApplicationContext context = null;
+        int exitCode;
+        try {
+            if (settings.getUrl() == null) {
+                context = boot();
+                settings.url = localUrl(context.getEnvironment());
+            }
+            exitCode = new LoadHarness().run(settings);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static ConfigurableApplicationContext boot() {
+        return new SpringApplicationBuilder(OauthSSOApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/oauth_benchmark"),
+                "--spring.datasource.username=" + System.getProperty("benchmark.jdbc.username", "oauth"),
+                "--spring.datasource.password=" + System.getProperty("benchmark.jdbc.password", "oauth"),
+                "--spring.jpa.show-sql=false");
+    }
+
+    private static String localUrl(Environment environment) {
+        return "http://localhost:" + environment.getProperty("local.server.port") +
+                environment.getProperty("server.servlet.context-path", "");
+    }
+
+    public int run(Settings settings) throws Exception {
+        System.out.printf("load %s: %d users, mix %s, warm up %ds, measure %ds%n", settings.getUrl(), settings.getUsers(),
+                settings.getMix().getWeights(), settings.getWarmupSeconds(), settings.getDurationSeconds());
+        // keep one connection per virtual user alive
+        System.setProperty("http.maxConnections", String.valueOf(settings.getUsers()));
+
+        Map<LoadOperation, OperationStats> stats = new EnumMap<>(LoadOperation.class);
+        for (LoadOperation operation : LoadOperation.values()) {
+            stats.put(operation, new OperationStats(operation));
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(settings.getWarmupSeconds() + settings.getDurationSeconds());
+        List<Thread> users = new ArrayList<>(settings.getUsers());
+        for (int i = 0; i < settings.getUsers(); i++) {
+            String username = settings.getUsernames().get(i % settings.getUsernames().size());
+            Thread user = new Thread(new VirtualUser(settings, stats, username, deadline), "virtual-user-" + i);
+            user.setDaemon(true);
+            users.add(user);
+            user.start();
+        }
+
+        TimeUnit.SECONDS.sleep(settings.getWarmupSeconds());
+        stats.values().forEach(OperationStats::reset);
+        long measureStart = System.nanoTime();
+        for (Thread user : users) {
+            user.join(TimeUnit.SECONDS.toMillis(settings.getDurationSeconds()) + settings.getTimeoutMillis() * 2L);
+        }
+        long elapsed = System.nanoTime() - measureStart;
+
+        List<OperationStats.Result> results = new ArrayList<>();
+        long total = 0;
+        for (OperationStats operationStats : stats.values()) {
+            OperationStats.Result result = operationStats.result(elapsed);
+            if (result.getCount() > 0 || result.getReauthenticated() > 0) {
+                results.add(result);
+                total += result.getCount();
+                System.out.println(result);
+            }
+        }
+        System.out.printf("total      %8d req %9.1f req/s%n", total, total / (elapsed / 1e9));
+        if (settings.isPrintHistogram()) {
+            for (OperationStats.Result result : results) {
+                System.out.println(result.getOperation().key() + " latency distribution (ms):");
+                result.getHistogram().outputPercentileDistribution(System.out, 1e6);
+            }
+        }
+
+        File baselineFile = new File(settings.getBaseline());
+        if (settings.isWriteBaseline()) {
+            LoadBaseline.of(results).write(baselineFile);
+            System.out.println("baseline written to " + baselineFile.getAbsolutePath());
+            return 0;
+        }
+        if (!baselineFile.isFile()) {
+            System.out.println("no baseline " + baselineFile.getAbsolutePath() + ", nothing to compare");
+            return 0;
+        }
+
+        List<String> regressions = LoadBaseline.read(baselineFile)
+                .compare(results, settings.getTolerance(), settings.getErrorRateMargin());
+        if (regressions.isEmpty()) {
+            System.out.println("no regression against " + baselineFile.getAbsolutePath());
+            return 0;
+        }
+        System.out.println("regression against " + baselineFile.getAbsolutePath() + ":");
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return 1;
+    }
+
+    /**
+     * {@code -Dload.*} system properties
+     */
+    public static class Settings {
+        private String url = System.getProperty("load.url");
+        private final int users = Integer.getInteger("load.users", 32);
+        private final int warmupSeconds = Integer.getInteger("load.warmup-seconds", 10);
+        private final int durationSeconds = Integer.getInteger("load.duration-seconds", 60);
+        private final int timeoutMillis = Integer.getInteger("load.timeout-ms", 10000);
+        private final LoadOperation.Mix mix = LoadOperation.Mix.parse(
+                System.getProperty("load.mix", "login=10,validate=70,revoke=5,datatables=15"));
+        private final String clientId = System.getProperty("load.client-id", "gen-client-0");
+        private final String clientSecret = System.getProperty("load.client-secret", "123456");
+        private final List<String> usernames = Arrays.asList(System.getProperty("load.usernames",
+                "gen-user-0,gen-user-1,gen-user-2,gen-user-3,gen-user-4,gen-user-5,gen-user-6,gen-user-7").split(","));
+        private final String password = System.getProperty("load.password", "password");
+        private final String module = System.getProperty("load.module", "gen-client-0");
+        private final String baseline = System.getProperty("load.baseline", "load-baseline.json");
+        private final boolean writeBaseline = Boolean.getBoolean("load.baseline.write");
+        private final double tolerance = Double.parseDouble(System.getProperty("load.baseline.tolerance", "0.2"));
+        private final double errorRateMargin = Double.parseDouble(System.getProperty("load.baseline.error-rate-margin", "0.01"));
+        private final boolean printHistogram = Boolean.getBoolean("load.histogram");
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getUsers() {
+            return users;
+        }
+
+        public int getWarmupSeconds() {
+            return warmupSeconds;
+        }
+
+        public int getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public int getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public LoadOperation.Mix getMix() {
+            return mix;
+        }
+
+        public String getClientId() {
+            return clientId;
+        }
+
+        public String getClientSecret() {
+            return clientSecret;
+        }
+
+        public List<String> getUsernames() {
+            return usernames;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public String getModule() {
+            return module;
+        }
+
+        public String getBaseline() {
+            return baseline;
+        }
+
+        public boolean isWriteBaseline() {
+            return writeBaseline;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public double getErrorRateMargin() {
+            return errorRateMargin;
+        }
+
+        public boolean isPrintHistogram() {
+            return printHistogram;
+        }
+    }
+}
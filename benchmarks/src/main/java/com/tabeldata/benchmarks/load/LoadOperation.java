@@ -0,0 +1,89 @@
+package com.tabeldata.benchmarks.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * operation of one virtual user, picked by weight of {@code -Dload.mix}
+ */
+public enum LoadOperation {
+
+    /**
+     * password grant {@code POST /oauth/token}
+     */
+    LOGIN,
+    /**
+     * bearer token validated by resource server {@code GET /api/component/menu/{module}/findByModule}
+     */
+    VALIDATE,
+    /**
+     * {@code POST /api/oauth/revoke}, the user login again on next operation
+     */
+    REVOKE,
+    /**
+     * {@code POST /api/oauth/token/current/datatables}
+     */
+    DATATABLES;
+
+    public String key() {
+        return this.name().toLowerCase();
+    }
+
+    /**
+     * cumulative weight of each operation
+     */
+    public static final class Mix {
+        private final Map<LoadOperation, Integer> weights;
+        private final LoadOperation[] operations;
+        private final int[] cumulative;
+        private final int total;
+
+        private Mix(Map<LoadOperation, Integer> weights) {
+            this.weights = weights;
+            this.operations = weights.keySet().toArray(new LoadOperation[0]);
+            this.cumulative = new int[this.operations.length];
+            int sum = 0;
+            for (int i = 0; i < this.operations.length; i++) {
+                sum += weights.get(this.operations[i]);
+                this.cumulative[i] = sum;
+            }
+            this.total = sum;
+        }
+
+        /**
+         * @param value like {@code login=10,validate=70,revoke=5,datatables=15}
+         */
+        public static Mix parse(String value) {
+            Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+            for (String entry : value.split(",")) {
+                String[] pair = entry.trim().split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("load mix entry must be operation=weight: " + entry);
+                }
+                int weight = Integer.parseInt(pair[1].trim());
+                if (weight > 0) {
+                    weights.put(LoadOperation.valueOf(pair[0].trim().toUpperCase()), weight);
+                }
+            }
+            if (weights.isEmpty()) {
+                throw new IllegalArgumentException("load mix has no operation: " + value);
+            }
+            return new Mix(weights);
+        }
+
+        public LoadOperation next() {
+            int value = ThreadLocalRandom.current().nextInt(this.total);
+            for (int i = 0; i < this.cumulative.length; i++) {
+                if (value < this.cumulative[i]) {
+                    return this.operations[i];
+                }
+            }
+            return this.operations[this.operations.length - 1];
+        }
+
+        public Map<LoadOperation, Integer> getWeights() {
+            return this.weights;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.tabeldata.benchmarks.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * latency and outcome of one operation, recorded concurrently by virtual users
+ */
+public class OperationStats {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final LoadOperation operation;
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder reauthenticated = new LongAdder();
+
+    public OperationStats(LoadOperation operation) {
+        this.operation = operation;
+    }
+
+    public void success(long nanos) {
+        this.recorder.recordValue(Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    /**
+     * failed request still take time, it is in the histogram too
+     */
+    public void error(long nanos) {
+        this.success(nanos);
+        this.errors.increment();
+    }
+
+    /**
+     * token was revoked by other virtual user of the same user and client (they share one token),
+     * not an error of the server
+     */
+    public void reauthenticated() {
+        this.reauthenticated.increment();
+    }
+
+    /**
+     * drop everything recorded so far, called at the end of warm up
+     */
+    public void reset() {
+        this.recorder.reset();
+        this.errors.reset();
+        this.reauthenticated.reset();
+    }
+
+    public Result result(long elapsedNanos) {
+        return new Result(this.operation, this.recorder.getIntervalHistogram(), this.errors.sum(),
+                this.reauthenticated.sum(), elapsedNanos);
+    }
+
+    public static class Result {
+        private final LoadOperation operation;
+        private final Histogram histogram;
+        private final long errors;
+        private final long reauthenticated;
+        private final double throughput;
+
+        private Result(LoadOperation operation, Histogram histogram, long errors, long reauthenticated, long elapsedNanos) {
+            this.operation = operation;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.reauthenticated = reauthenticated;
+            this.throughput = histogram.getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        public LoadOperation getOperation() {
+            return operation;
+        }
+
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        public long getCount() {
+            return histogram.getTotalCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getReauthenticated() {
+            return reauthenticated;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public double getErrorRate() {
+            return getCount() == 0 ? 0 : (double) errors / getCount();
+        }
+
+        public double percentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %8d req %9.1f req/s  p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms  errors %.2f%% (%d)  reauth %d",
+                    operation.key(), getCount(), throughput,
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                    histogram.getMaxValue() / 1e6, getErrorRate() * 100, errors, reauthenticated);
+        }
+    }
+}
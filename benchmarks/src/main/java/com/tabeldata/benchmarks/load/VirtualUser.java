@@ -0,0 +1,179 @@
+package com.tabeldata.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * one client of the server: login, then keep doing operation of the mix with its token until the deadline.
+ * Virtual users of the same username share one token (token store issue one token per user, client and scope),
+ * so token revoked by other user is answered by login again, counted as reauthenticated not as error.
+ */
+public class VirtualUser implements Runnable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final LoadHarness.Settings settings;
+    private final Map<LoadOperation, OperationStats> stats;
+    private final String username;
+    private final long deadlineNanos;
+    private String accessToken;
+    private String menuEtag;
+
+    public VirtualUser(LoadHarness.Settings settings, Map<LoadOperation, OperationStats> stats, String username, long deadlineNanos) {
+        this.settings = settings;
+        this.stats = stats;
+        this.username = username;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < this.deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            LoadOperation operation = this.settings.getMix().next();
+            if (this.accessToken == null && operation != LoadOperation.LOGIN) {
+                this.execute(LoadOperation.LOGIN);
+                if (this.accessToken == null) {
+                    continue;
+                }
+            }
+            this.execute(operation);
+        }
+    }
+
+    private void execute(LoadOperation operation) {
+        OperationStats operationStats = this.stats.get(operation);
+        long start = System.nanoTime();
+        try {
+            Response response = this.send(operation);
+            long elapsed = System.nanoTime() - start;
+            if (response.status == HttpURLConnection.HTTP_UNAUTHORIZED && operation != LoadOperation.LOGIN) {
+                this.accessToken = null;
+                operationStats.reauthenticated();
+            } else if (this.handle(operation, response)) {
+                operationStats.success(elapsed);
+            } else {
+                operationStats.error(elapsed);
+            }
+        } catch (IOException | RuntimeException e) {
+            operationStats.error(System.nanoTime() - start);
+        }
+    }
+
+    private Response send(LoadOperation operation) throws IOException {
+        switch (operation) {
+            case LOGIN:
+                return this.request("POST", "/oauth/token", "application/x-www-form-urlencoded",
+                        "grant_type=password&client_id=" + encode(this.settings.getClientId()) +
+                                "&username=" + encode(this.username) +
+                                "&password=" + encode(this.settings.getPassword()),
+                        "Basic " + Base64.getEncoder().encodeToString(
+                                (this.settings.getClientId() + ":" + this.settings.getClientSecret()).getBytes(StandardCharsets.UTF_8)));
+            case VALIDATE:
+                return this.request("GET", "/api/component/menu/" + encode(this.settings.getModule()) + "/findByModule",
+                        null, null, "Bearer " + this.accessToken);
+            case REVOKE:
+                return this.request("POST", "/api/oauth/revoke?logout=" + encode(this.username) +
+                                "&clientId=" + encode(this.settings.getClientId()),
+                        "application/json", MAPPER.writeValueAsString(
+                                Collections.singletonMap("access_token", this.accessToken)),
+                        "Bearer " + this.accessToken);
+            case DATATABLES:
+                return this.request("POST", "/api/oauth/token/current/datatables?draw=1&start=0&length=10",
+                        "application/json", "{}", "Bearer " + this.accessToken);
+            default:
+                throw new IllegalStateException("unknown operation " + operation);
+        }
+    }
+
+    /**
+     * @return true when response is the expected one
+     */
+    private boolean handle(LoadOperation operation, Response response) throws IOException {
+        switch (operation) {
+            case LOGIN:
+                if (response.status != HttpURLConnection.HTTP_OK) {
+                    return false;
+                }
+                JsonNode token = MAPPER.readTree(response.body).get("access_token");
+                this.accessToken = token != null ? token.asText() : null;
+                return this.accessToken != null;
+            case VALIDATE:
+                if (response.status == HttpURLConnection.HTTP_OK) {
+                    this.menuEtag = response.etag;
+                }
+                return response.status == HttpURLConnection.HTTP_OK || response.status == HttpURLConnection.HTTP_NOT_MODIFIED;
+            case REVOKE:
+                this.accessToken = null;
+                this.menuEtag = null;
+                return response.status == HttpURLConnection.HTTP_OK || response.status == HttpURLConnection.HTTP_NO_CONTENT;
+            default:
+                return response.status == HttpURLConnection.HTTP_OK;
+        }
+    }
+
+    private Response request(String method, String path, String contentType, String body, String authorization)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.settings.getUrl() + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(this.settings.getTimeoutMillis());
+        connection.setReadTimeout(this.settings.getTimeoutMillis());
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setRequestProperty("Authorization", authorization);
+        if (path.endsWith("/findByModule") && this.menuEtag != null) {
+            connection.setRequestProperty("If-None-Match", this.menuEtag);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int status = connection.getResponseCode();
+        // read the body to the end, so the connection is kept alive for the next request
+        InputStream input = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        byte[] content = input != null ? readFully(input) : new byte[0];
+        return new Response(status, content, connection.getHeaderField("ETag"));
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static final class Response {
+        private final int status;
+        private final byte[] body;
+        private final String etag;
+
+        private Response(int status, byte[] body, String etag) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tabeldata.auth;
+
+import com.tabeldata.auth.service.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.info.InfoEndpoint;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * actuator endpoints other than health and info need http basic login of a user with {@code management.security.authority}
+ */
+@Configuration
+@Order(1)
+public class ActuatorSecurityConfiguration extends WebSecurityConfigurerAdapter {
+
+    @Autowired
+    private UserDetailsService jdbcUserDetailsService;
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Value("${management.security.authority:ROLE_ACTUATOR}")
+    private String authority;
+
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+        auth
+                .userDetailsService(jdbcUserDetailsService)
+                .passwordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+        http.cors().disable()
+                .csrf().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+
+        http.requestMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeRequests()
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class, InfoEndpoint.class)).permitAll()
+                .anyRequest().hasAuthority(authority)
+                .and()
+                .httpBasic();
+    }
+}
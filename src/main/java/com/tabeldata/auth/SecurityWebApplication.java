@@ -1,7 +1,12 @@
 package com.tabeldata.auth;
 
+import com.tabeldata.auth.service.BoundedPasswordEncoder;
+import com.tabeldata.auth.service.UserAuthorityJdbcDaoImpl;
+import com.tabeldata.auth.service.UserAuthorityResolver;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,8 +18,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 
 import javax.sql.DataSource;
@@ -29,14 +34,35 @@ public class SecurityWebApplication extends WebSecurityConfigurerAdapter {
     @Qualifier("dataSource")
     private DataSource dataSource;
 
+    @Autowired
+    private UserAuthorityResolver userAuthorityResolver;
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.password-encoder.strength:11}")
+    private int passwordEncoderStrength;
+    @Value("${auth.password-encoder.threads:0}")
+    private int passwordEncoderThreads;
+    @Value("${auth.password-encoder.queue-capacity:64}")
+    private int passwordEncoderQueueCapacity;
+    @Value("${auth.password-encoder.max-wait-ms:5000}")
+    private long passwordEncoderMaxWaitMillis;
+    @Value("${auth.password-encoder.retry-after-seconds:1}")
+    private int passwordEncoderRetryAfterSeconds;
+
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
         auth
-                .jdbcAuthentication()
-                .dataSource(dataSource)
-                .passwordEncoder(passwordEncoder())
-                .usersByUsernameQuery("select * from auth.authentication(?)")
-                .authoritiesByUsernameQuery("select * from auth.authorization(?)");
+                .userDetailsService(jdbcUserDetailsService())
+                .passwordEncoder(passwordEncoder());
+    }
+
+    @Bean
+    public UserDetailsService jdbcUserDetailsService() {
+        UserAuthorityJdbcDaoImpl userDetailsService = new UserAuthorityJdbcDaoImpl(userAuthorityResolver);
+        userDetailsService.setDataSource(dataSource);
+        userDetailsService.setUsersByUsernameQuery("select * from auth.authentication(?)");
+        return userDetailsService;
     }
 
     @Bean
@@ -74,9 +100,22 @@ public class SecurityWebApplication extends WebSecurityConfigurerAdapter {
                 .permitAll();
     }
 
+    /**
+     * bcrypt on its own bounded pool, see {@link BoundedPasswordEncoder}
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(11);
+    public BoundedPasswordEncoder passwordEncoder() {
+        int threads = passwordEncoderThreads > 0 ? passwordEncoderThreads : Runtime.getRuntime().availableProcessors();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(passwordEncoderStrength),
+                threads,
+                passwordEncoderQueueCapacity,
+                passwordEncoderMaxWaitMillis,
+                passwordEncoderRetryAfterSeconds);
+        if (meterRegistry != null) {
+            encoder.bindTo(meterRegistry);
+        }
+        return encoder;
     }
 
 }
@@ -15,16 +15,16 @@ public class AuthorityDao implements Serializable {
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
+    /**
+     * roles of the user from materialized view {@code auth.user_roles}, sudo user have every role
+     */
     public List<Authority> distinctRolesByUsername(String username) {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("userId", username);
-        StringBuilder query = new StringBuilder("select distinct role.id as role_id, role.name as role_name, role.description as role_description\n" +
-                "from auth.users u\n" +
-                "       join auth.user_privileges granted on u.id = granted.user_id\n" +
-                "       join auth.privileges privilege on granted.privilege_id = privilege.id\n" +
-                "       join auth.authorities authority on authority.privilege_id = privilege.id\n" +
-                "       join auth.roles role on authority.role_id = role.id\n" +
-                "where u.username = :userId");
+        StringBuilder query = new StringBuilder("/* authority.rolesByUsername */ select role_id, role_name, role_description\n" +
+                "from auth.user_roles\n" +
+                "where username = :userId\n" +
+                "order by role_id");
         return this.jdbcTemplate.query(
                 query.toString(), params,
                 (resultSet, i) -> new Authority(
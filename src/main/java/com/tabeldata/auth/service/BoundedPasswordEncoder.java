@@ -0,0 +1,115 @@
+package com.tabeldata.auth.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * run the (slow) delegate encoder on its own fixed pool, so login storm can't take every request thread and CPU.
+ * <p>
+ * When the queue is full, or the work is not done in {@code maxWaitMillis}, {@link PasswordEncoderBusyException}
+ * is thrown right away instead of waiting.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final int retryAfterSeconds;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BoundedPasswordEncoder(
+            PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMillis, int retryAfterSeconds) {
+        this.delegate = delegate;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-encoder-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.password.queue.size", this.executor, executor -> executor.getQueue().size())
+                .description("password hashing waiting for a worker")
+                .register(registry);
+        Gauge.builder("auth.password.active", this.executor, ThreadPoolExecutor::getActiveCount)
+                .description("password hashing in progress")
+                .register(registry);
+        Gauge.builder("auth.password.rejected", this.rejected, AtomicLong::get)
+                .description("password hashing rejected because pool is busy")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.submit(() -> this.delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return this.submit(() -> this.delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Callable<T> work) {
+        Future<T> future;
+        try {
+            future = this.executor.submit(work);
+        } catch (RejectedExecutionException ree) {
+            throw this.busy("password encoder queue is full");
+        }
+
+        try {
+            return future.get(this.maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException te) {
+            future.cancel(false);
+            throw this.busy("password encoder didn't finish in " + this.maxWaitMillis + " ms");
+        } catch (InterruptedException ie) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw this.busy("interrupted while waiting for password encoder");
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new IllegalStateException(ee.getCause());
+        }
+    }
+
+    private PasswordEncoderBusyException busy(String message) {
+        long count = this.rejected.incrementAndGet();
+        if (count % 100 == 1) {
+            log.warn("{}, {} password hashing rejected so far", message, count);
+        }
+        return new PasswordEncoderBusyException(message, this.retryAfterSeconds);
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,45 @@
+package com.tabeldata.auth.service;
+
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+/**
+ * password hashing pool is full, answered as {@code 503 temporarily_unavailable} with {@code Retry-After}
+ */
+public class PasswordEncoderBusyException extends OAuth2Exception {
+
+    private final int retryAfterSeconds;
+
+    public PasswordEncoderBusyException(String msg, int retryAfterSeconds) {
+        super(msg);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return this.retryAfterSeconds;
+    }
+
+    @Override
+    public String getOAuth2ErrorCode() {
+        return "temporarily_unavailable";
+    }
+
+    @Override
+    public int getHttpErrorCode() {
+        return 503;
+    }
+
+    /**
+     * the busy exception in the cause chain, or null
+     */
+    public static PasswordEncoderBusyException find(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PasswordEncoderBusyException) {
+                return (PasswordEncoderBusyException) cause;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.tabeldata.auth.service;
+
+import com.tabeldata.auth.dto.Authority;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.jdbc.JdbcDaoImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * user by {@code auth.authentication(?)} as before, authorities by {@link UserAuthorityResolver} instead of
+ * {@code auth.authorization(?)} so login share the cached roles with menu
+ */
+public class UserAuthorityJdbcDaoImpl extends JdbcDaoImpl {
+
+    private final UserAuthorityResolver userAuthorityResolver;
+
+    public UserAuthorityJdbcDaoImpl(UserAuthorityResolver userAuthorityResolver) {
+        this.userAuthorityResolver = userAuthorityResolver;
+    }
+
+    @Override
+    protected List<GrantedAuthority> loadUserAuthorities(String username) {
+        List<Authority> roles = this.userAuthorityResolver.rolesOf(username);
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (Authority role : roles) {
+            authorities.add(new SimpleGrantedAuthority(getRolePrefix() + role.getName()));
+        }
+        return authorities;
+    }
+}
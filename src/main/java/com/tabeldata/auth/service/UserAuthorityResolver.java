@@ -0,0 +1,88 @@
+package com.tabeldata.auth.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.tabeldata.auth.dao.AuthorityDao;
+import com.tabeldata.auth.dto.Authority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * roles of user for login and menu, read from {@code auth.user_roles} and cached for a short time.
+ * <p>
+ * Cleared on change of {@code auth.*} by {@link com.tabeldata.components.service.MenuChangeListener}, roles loaded
+ * while clearing are not cached.
+ */
+@Slf4j
+@Service
+public class UserAuthorityResolver {
+
+    @Autowired
+    private AuthorityDao authorityDao;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.user-authority.cache.enabled:true}")
+    private boolean cacheEnabled;
+    @Value("${auth.user-authority.cache.maximum-size:10000}")
+    private long cacheMaximumSize;
+    @Value("${auth.user-authority.cache.ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    private Cache<String, List<Authority>> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void initCache() {
+        if (!this.cacheEnabled) {
+            log.info("user authority cache disabled, every lookup goes to database");
+            return;
+        }
+
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(this.cacheMaximumSize)
+                .expireAfterWrite(this.cacheTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        if (this.meterRegistry != null) {
+            GuavaCacheMetrics.monitor(this.meterRegistry, this.cache, "auth.user.authorities");
+        }
+    }
+
+    public List<Authority> rolesOf(String username) {
+        if (this.cache == null) {
+            return this.authorityDao.distinctRolesByUsername(username);
+        }
+
+        List<Authority> authorities = this.cache.getIfPresent(username);
+        if (authorities == null) {
+            long current = this.generation.get();
+            authorities = Collections.unmodifiableList(this.authorityDao.distinctRolesByUsername(username));
+            if (current == this.generation.get()) {
+                this.cache.put(username, authorities);
+            }
+        }
+        return authorities;
+    }
+
+    /**
+     * clear cached roles of every user, call it after user, privilege or role changed
+     */
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+        if (this.cache != null) {
+            this.cache.invalidateAll();
+        }
+    }
+}
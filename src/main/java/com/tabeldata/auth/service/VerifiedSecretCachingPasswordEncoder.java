@@ -0,0 +1,78 @@
+package com.tabeldata.auth.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * remember client secret already verified for a short time, so machine to machine client doesn't pay bcrypt on
+ * every token request.
+ * <p>
+ * Only successful match is cached, keyed by HMAC-SHA256 of raw and encoded secret with a random key of this
+ * process: the raw secret is never kept, and changed secret (other encoded value) is a different key.
+ */
+public class VerifiedSecretCachingPasswordEncoder implements PasswordEncoder {
+
+    private static final Boolean VERIFIED = Boolean.TRUE;
+
+    private final PasswordEncoder delegate;
+    private final HashFunction hmac;
+    private final Cache<HashCode, Boolean> verified;
+
+    public VerifiedSecretCachingPasswordEncoder(PasswordEncoder delegate, long maximumSize, long ttlSeconds) {
+        this.delegate = delegate;
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmac = Hashing.hmacSha256(key);
+        this.verified = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, this.verified, "oauth.client-secret.verified");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return this.delegate.matches(rawPassword, encodedPassword);
+        }
+
+        HashCode key = this.hmac.newHasher()
+                .putString(rawPassword, StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(encodedPassword, StandardCharsets.UTF_8)
+                .hash();
+        if (this.verified.getIfPresent(key) != null) {
+            return true;
+        }
+
+        boolean matches = this.delegate.matches(rawPassword, encodedPassword);
+        if (matches) {
+            this.verified.put(key, VERIFIED);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -1,12 +1,16 @@
 package com.tabeldata.components.controller;
 
 import com.tabeldata.components.dto.MenuDto;
+import com.tabeldata.components.dto.MenuTree;
 import com.tabeldata.components.service.MenuService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.security.Principal;
 import java.util.List;
@@ -18,9 +22,20 @@ public class MenuController {
     @Autowired
     private MenuService service;
 
+    /**
+     * menu tree with etag, answer 304 when client already have the same tree
+     */
     @GetMapping("/{id}/findByModule")
-    public List<MenuDto> findAllMenu(Principal principal, @PathVariable("id") String moduleId) {
+    public ResponseEntity<List<MenuDto>> findAllMenu(
+            Principal principal, @PathVariable("id") String moduleId, WebRequest request) {
+        MenuTree tree = service.findTreeByModuleId(principal.getName(), moduleId);
+        if (request.checkNotModified(tree.getEtag())) {
+            return null;
+        }
 
-        return service.findAllByModuleId(principal.getName(), moduleId);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(tree.getEtag())
+                .body(tree.getMenus());
     }
 }
@@ -4,14 +4,19 @@ import com.tabeldata.auth.dto.Authority;
 import com.tabeldata.components.dto.MenuDto;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlTypeValue;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
 import org.springframework.stereotype.Repository;
 
-import java.sql.ResultSet;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Repository
@@ -20,69 +25,88 @@ public class MenuDao {
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
+    /**
+     * menu tree of the module visible to the roles in one query: menu mapped to any of the roles by
+     * {@code component.menu_mapping_by_role} or not mapped to any role at all, plus all of its ancestors,
+     * so a parent is kept when any child is visible.
+     * Parent always come before its children (ordered by depth) so the tree is assembled in a single pass
+     */
     public List<MenuDto> getMenuByRolesAndModule(String moduleId, List<Authority> roles) {
-        log.info("roles -> {}", roles);
+        log.debug("menu of module {} by roles -> {}", moduleId, roles);
         //language=PostgreSQL
-        String baseQuery = "select id           as id,\n" +
-                "       title        as title,\n" +
-                "       path         as path,\n" +
-                "       icon_id      as icon,\n" +
-                "       is_menu      as is_menu,\n" +
-                "       created_by   as created_by,\n" +
-                "       created_date as created_date,\n" +
-                "       resource_id  as resource_id,\n" +
-                "       parent_id    as parent_id\n" +
-                "from component.menu";
-        StringBuilder menuQuery = new StringBuilder(baseQuery)
-                .append(" where resource_id = :moduleId and parent_id is null");
+        String query = "/* menu.byRolesAndModule */ with recursive visible as (\n" +
+                "  select menu.id, menu.parent_id\n" +
+                "  from component.menu menu\n" +
+                "  where menu.resource_id = :moduleId\n" +
+                "    and (exists(select 1\n" +
+                "                from component.menu_mapping_by_role mapping\n" +
+                "                where mapping.menu_id = menu.id\n" +
+                "                  and mapping.role_id = any (:roleIds))\n" +
+                "     or not exists(select 1\n" +
+                "                   from component.menu_mapping_by_role mapping\n" +
+                "                   where mapping.menu_id = menu.id))\n" +
+                "  union\n" +
+                "  select parent.id, parent.parent_id\n" +
+                "  from component.menu parent\n" +
+                "         join visible on parent.id = visible.parent_id\n" +
+                "),\n" +
+                "     tree as (\n" +
+                "  select id, title, path, icon_id, parent_id, 1 as depth\n" +
+                "  from component.menu\n" +
+                "  where resource_id = :moduleId\n" +
+                "    and parent_id is null\n" +
+                "    and id in (select id from visible)\n" +
+                "  union all\n" +
+                "  select child.id, child.title, child.path, child.icon_id, child.parent_id, tree.depth + 1\n" +
+                "  from component.menu child\n" +
+                "         join tree on child.parent_id = tree.id\n" +
+                "  where child.id in (select id from visible)\n" +
+                ")\n" +
+                "select id        as id,\n" +
+                "       title     as title,\n" +
+                "       path      as path,\n" +
+                "       icon_id   as icon,\n" +
+                "       parent_id as parent_id\n" +
+                "from tree\n" +
+                "order by depth, id";
         MapSqlParameterSource menuParameter = new MapSqlParameterSource();
         menuParameter.addValue("moduleId", moduleId);
-        return this.jdbcTemplate.query(
-                menuQuery.toString(),
-                menuParameter,
-                new MenuDtoRowMapper(baseQuery, null)
-        );
+        menuParameter.addValue("roleIds", roleIds(roles), Types.ARRAY);
 
-    }
-
-    private class MenuDtoRowMapper implements RowMapper<MenuDto> {
-
-        private final StringBuilder queryMenuByParentid;
-        private final String baseQuery;
-        private final MenuDto superClass;
-
-        MenuDtoRowMapper(String baseQuery, MenuDto superClass) {
-            this.baseQuery = baseQuery;
-            this.queryMenuByParentid = new StringBuilder(baseQuery);
-            this.queryMenuByParentid.append(" where parent_id = :parentId");
-            this.superClass = superClass;
-        }
-
-        @Override
-        public MenuDto mapRow(ResultSet resultSet, int i) throws SQLException {
+        List<MenuDto> roots = new ArrayList<>();
+        Map<String, MenuDto> menus = new HashMap<>();
+        this.jdbcTemplate.query(query, menuParameter, resultSet -> {
             MenuDto menu = new MenuDto();
             menu.setId(resultSet.getString("id"));
-            if (this.superClass != null)
-                menu.setUrl(
-                        new StringBuilder(
-                                this.superClass.getUrl())
-                                .append(resultSet.getString("path")).toString()
-                );
-            else
-                menu.setUrl(resultSet.getString("path"));
             menu.setIcon(resultSet.getString("icon"));
             menu.setTitle(resultSet.getString("title"));
 
-            MapSqlParameterSource parametersMenuByParentId = new MapSqlParameterSource();
-            parametersMenuByParentId.addValue("parentId", menu.getId());
-            menu.setChildren(
-                    jdbcTemplate.query(
-                            this.queryMenuByParentid.toString(),
-                            parametersMenuByParentId,
-                            new MenuDtoRowMapper(this.baseQuery, menu)
-                    )
-            );
-            return menu;
-        }
+            MenuDto parent = menus.get(resultSet.getString("parent_id"));
+            if (parent != null) {
+                menu.setUrl(new StringBuilder(parent.getUrl()).append(resultSet.getString("path")).toString());
+                parent.getChildren().add(menu);
+            } else {
+                menu.setUrl(resultSet.getString("path"));
+                roots.add(menu);
+            }
+            menus.put(menu.getId(), menu);
+        });
+        return roots;
+    }
+
+    /**
+     * distinct role ids bound as a single {@code int[]} parameter, so the statement is the same for any number of roles
+     */
+    private static SqlTypeValue roleIds(List<Authority> roles) {
+        Integer[] ids = roles.stream()
+                .map(Authority::getId)
+                .distinct()
+                .toArray(Integer[]::new);
+        return new AbstractSqlTypeValue() {
+            @Override
+            protected Object createTypeValue(Connection connection, int sqlType, String typeName) throws SQLException {
+                return connection.createArrayOf("int4", ids);
+            }
+        };
     }
 }
@@ -0,0 +1,22 @@
+package com.tabeldata.components.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * prebuilt menu of one module for one set of roles, children lists are unmodifiable
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MenuTree {
+
+    private final List<MenuDto> menus;
+    /**
+     * hash of serialized menus, the same menus produce the same etag on every node
+     */
+    private final String etag;
+}
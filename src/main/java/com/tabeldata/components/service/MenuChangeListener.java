@@ -0,0 +1,118 @@
+package com.tabeldata.components.service;
+
+import com.tabeldata.auth.service.UserAuthorityResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * clear menu cache of {@link MenuService} and roles of {@link UserAuthorityResolver} on postgres notification of channel {@value #CHANNEL}.
+ * <p>
+ * Notification is sent by statement trigger of {@code component.menu*} and {@code auth.*} tables with the table
+ * name as payload. It uses its own connection outside of the pool, reconnected when lost; everything is cleared
+ * after (re)connect because notification sent while disconnected is lost.
+ */
+@Slf4j
+@Component
+public class MenuChangeListener {
+
+    static final String CHANNEL = "menu_changed";
+
+    @Autowired
+    private MenuService menuService;
+    @Autowired
+    private UserAuthorityResolver userAuthorityResolver;
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${component.menu.listener.enabled:true}")
+    private boolean enabled;
+    @Value("${component.menu.listener.poll-ms:10000}")
+    private int pollMillis;
+    @Value("${component.menu.listener.reconnect-ms:5000}")
+    private long reconnectMillis;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        if (!this.enabled) {
+            log.info("menu change listener disabled, menu and role cache cleared only by their ttl");
+            return;
+        }
+
+        this.running = true;
+        this.worker = new Thread(this::run, "menu-change-listener");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        this.running = false;
+        if (this.worker != null) {
+            this.worker.interrupt();
+            this.worker.join(this.pollMillis);
+        }
+    }
+
+    private void run() {
+        while (this.running) {
+            try (Connection connection = DriverManager.getConnection(
+                    this.dataSourceProperties.determineUrl(),
+                    this.dataSourceProperties.determineUsername(),
+                    this.dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                this.userAuthorityResolver.invalidateAll();
+                this.menuService.invalidateMenus();
+                log.info("listening menu change on channel {}", CHANNEL);
+
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (this.running) {
+                    PGNotification[] received = notifications.getNotifications(this.pollMillis);
+                    if (received != null) {
+                        this.handle(received);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!this.running) {
+                    return;
+                }
+                log.warn("menu change listener lost connection, reconnect in {} ms", this.reconnectMillis, e);
+                try {
+                    Thread.sleep(this.reconnectMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(PGNotification[] received) {
+        boolean roles = false;
+        for (PGNotification notification : received) {
+            String table = notification.getParameter();
+            roles |= table != null && table.startsWith("auth.");
+        }
+
+        log.debug("menu change notified by {} event(s), clear roles: {}", received.length, roles);
+        if (roles) {
+            this.userAuthorityResolver.invalidateAll();
+        }
+        this.menuService.invalidateMenus();
+    }
+}
@@ -1,27 +1,136 @@
 package com.tabeldata.components.service;
 
-import com.tabeldata.auth.dao.AuthorityDao;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.tabeldata.auth.dto.Authority;
+import com.tabeldata.auth.service.UserAuthorityResolver;
 import com.tabeldata.components.dao.MenuDao;
 import com.tabeldata.components.dto.MenuDto;
+import com.tabeldata.components.dto.MenuTree;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * menu tree by module and roles of the user.
+ * <p>
+ * Menu tree only depends on module and role set, so it is cached by module and sorted role ids, shared by every
+ * user with the same roles, roles of user come from {@link UserAuthorityResolver}. Cleared by
+ * {@link MenuChangeListener} when {@code component.menu} or {@code auth.*} changed; tree loaded while clearing
+ * is not cached. Entry expire after {@code component.menu.cache.ttl-seconds} in case a change notification is missed.
+ */
+@Slf4j
 @Service
-@Transactional(readOnly = true)
 public class MenuService {
 
     @Autowired
     private MenuDao menuDao;
 
     @Autowired
-    private AuthorityDao authorityDao;
+    private UserAuthorityResolver userAuthorityResolver;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${component.menu.cache.enabled:true}")
+    private boolean cacheEnabled;
+    @Value("${component.menu.cache.maximum-size:1000}")
+    private long cacheMaximumSize;
+    @Value("${component.menu.cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    private Cache<String, MenuTree> menuCache;
+    private final AtomicLong menuGeneration = new AtomicLong();
+
+    @PostConstruct
+    public void initCache() {
+        if (!this.cacheEnabled) {
+            log.info("menu cache disabled, every lookup goes to database");
+            return;
+        }
+
+        this.menuCache = CacheBuilder.newBuilder()
+                .maximumSize(this.cacheMaximumSize)
+                .expireAfterWrite(this.cacheTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        if (this.meterRegistry != null) {
+            GuavaCacheMetrics.monitor(this.meterRegistry, this.menuCache, "component.menu");
+        }
+    }
 
     public List<MenuDto> findAllByModuleId(String username, String moduleId) {
-        List<Authority> authorities = authorityDao.distinctRolesByUsername(username);
-        return menuDao.getMenuByRolesAndModule(moduleId, authorities);
+        return this.findTreeByModuleId(username, moduleId).getMenus();
+    }
+
+    public MenuTree findTreeByModuleId(String username, String moduleId) {
+        List<Authority> authorities = this.userAuthorityResolver.rolesOf(username);
+        if (this.menuCache == null) {
+            return this.build(moduleId, authorities);
+        }
+
+        String key = moduleId + "|" + authorities.stream()
+                .map(Authority::getId)
+                .distinct()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+        MenuTree tree = this.menuCache.getIfPresent(key);
+        if (tree == null) {
+            long generation = this.menuGeneration.get();
+            tree = this.build(moduleId, authorities);
+            if (generation == this.menuGeneration.get()) {
+                this.menuCache.put(key, tree);
+                // cleared between the check and the put, don't keep a tree loaded before the change
+                if (generation != this.menuGeneration.get()) {
+                    this.menuCache.invalidate(key);
+                }
+            }
+        }
+        return tree;
+    }
+
+    private MenuTree build(String moduleId, List<Authority> authorities) {
+        List<MenuDto> menus = freeze(this.menuDao.getMenuByRolesAndModule(moduleId, authorities));
+        try {
+            return new MenuTree(menus, DigestUtils.md5DigestAsHex(this.objectMapper.writeValueAsBytes(menus)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("can't serialize menu of module " + moduleId, e);
+        }
+    }
+
+    private static List<MenuDto> freeze(List<MenuDto> menus) {
+        List<MenuDto> frozen = new ArrayList<>(menus.size());
+        for (MenuDto menu : menus) {
+            frozen.add(new MenuDto(menu.getId(), menu.getTitle(), menu.getUrl(), menu.getIcon(), freeze(menu.getChildren())));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
+    /**
+     * clear cached menu trees, call it after {@code component.menu} or role mapping changed
+     */
+    public void invalidateMenus() {
+        this.menuGeneration.incrementAndGet();
+        if (this.menuCache != null) {
+            this.menuCache.invalidateAll();
+        }
     }
 }
@@ -1,8 +1,12 @@
 package com.tabeldata.configs;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
@@ -11,6 +15,27 @@ import javax.sql.DataSource;
 @Configuration
 public class DatasourceConfiguration {
 
+    /**
+     * wrap data source so every statement is measured, see {@link JdbcStatementMetrics}
+     */
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        boolean enabled = environment.getProperty("jdbc.metrics.enabled", Boolean.class, true);
+        JdbcStatementMetrics metrics = new JdbcStatementMetrics(
+                meterRegistry, environment.getProperty("jdbc.metrics.histogram", Boolean.class, true));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && "dataSource".equals(beanName) && bean instanceof DataSource
+                        && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource((DataSource) bean, metrics);
+                }
+                return bean;
+            }
+        };
+    }
+
     @Bean
     public JdbcTemplate jdbcTemplate(@Qualifier("dataSource") DataSource dataSource){
         return new JdbcTemplate(dataSource);
@@ -0,0 +1,192 @@
+package com.tabeldata.configs;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * data source of which every statement is measured by {@link JdbcStatementMetrics}: execution time, rows read
+ * (counted until the result set is closed) or updated and bytes of binary column read. Statements and connections
+ * are also counted into {@link RequestQueryStats} of the current thread.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final JdbcStatementMetrics metrics;
+
+    public InstrumentedDataSource(DataSource targetDataSource, JdbcStatementMetrics metrics) {
+        super(targetDataSource);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return this.wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.wrap(super.getConnection(username, password));
+    }
+
+    /**
+     * close the pool on shutdown, as it would be without the wrapper
+     */
+    @Override
+    public void close() throws Exception {
+        if (this.getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) this.getTargetDataSource()).close();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        RequestQueryStats.connectionBorrowed();
+        return (Connection) Proxy.newProxyInstance(
+                InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection, this.metrics));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final JdbcStatementMetrics metrics;
+
+        private ConnectionHandler(Connection target, JdbcStatementMetrics metrics) {
+            this.target = target;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(this.target, method, args);
+            Class<?> type = method.getReturnType();
+            if (type != Statement.class && type != PreparedStatement.class && type != CallableStatement.class) {
+                return result;
+            }
+
+            String name = args != null && args.length > 0 && args[0] instanceof String
+                    ? JdbcStatementMetrics.nameOf((String) args[0]) : null;
+            return Proxy.newProxyInstance(
+                    InstrumentedDataSource.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler((Statement) result, name, this.metrics));
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final JdbcStatementMetrics metrics;
+        private String name;
+
+        private StatementHandler(Statement target, String name, JdbcStatementMetrics metrics) {
+            this.target = target;
+            this.name = name;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if (!methodName.startsWith("execute")) {
+                Object result = InstrumentedDataSource.invoke(this.target, method, args);
+                return "getResultSet".equals(methodName) ? this.wrap((ResultSet) result) : result;
+            }
+
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                this.name = JdbcStatementMetrics.nameOf((String) args[0]);
+            }
+            String name = this.name != null ? this.name : JdbcStatementMetrics.UNNAMED;
+            RequestQueryStats.statementExecuted();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = InstrumentedDataSource.invoke(this.target, method, args);
+            } catch (SQLException e) {
+                this.metrics.executed(name, System.nanoTime() - start, e);
+                throw e;
+            }
+            this.metrics.executed(name, System.nanoTime() - start, null);
+
+            if (result instanceof ResultSet) {
+                return this.wrap((ResultSet) result);
+            } else if (result instanceof Integer || result instanceof Long) {
+                this.metrics.rows(name, Math.max(((Number) result).longValue(), 0), 0);
+            } else if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                this.metrics.rows(name, rows, 0);
+            }
+            return result;
+        }
+
+        private ResultSet wrap(ResultSet resultSet) {
+            if (resultSet == null) {
+                return null;
+            }
+            return (ResultSet) Proxy.newProxyInstance(
+                    InstrumentedDataSource.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler(resultSet, this.name != null ? this.name : JdbcStatementMetrics.UNNAMED, this.metrics));
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final String name;
+        private final JdbcStatementMetrics metrics;
+        private long rows;
+        private long blobBytes;
+        private boolean recorded;
+
+        private ResultSetHandler(ResultSet target, String name, JdbcStatementMetrics metrics) {
+            this.target = target;
+            this.name = name;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(this.target, method, args);
+            switch (method.getName()) {
+                case "next":
+                    if (Boolean.TRUE.equals(result)) {
+                        this.rows++;
+                    }
+                    break;
+                case "getBytes":
+                    if (result != null) {
+                        this.blobBytes += ((byte[]) result).length;
+                    }
+                    break;
+                case "close":
+                    if (!this.recorded) {
+                        this.recorded = true;
+                        this.metrics.rows(this.name, this.rows, this.blobBytes);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.tabeldata.configs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * meters of jdbc statement by logical name, the name is the leading comment of the sql,
+ * e.g. <code>&#47;* token.selectAccessToken *&#47; select ...</code>
+ * <p>
+ * Statement without name is counted as {@value #UNNAMED}, sql text is never used as tag.
+ */
+public class JdbcStatementMetrics {
+
+    static final String UNNAMED = "unnamed";
+    private static final Pattern NAME = Pattern.compile("^\\s*/\\*\\s*([A-Za-z0-9._-]{1,64})\\s*\\*/");
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final boolean histogram;
+    private final ConcurrentMap<String, Meters> meters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public JdbcStatementMetrics(ObjectProvider<MeterRegistry> registryProvider, boolean histogram) {
+        this.registryProvider = registryProvider;
+        this.histogram = histogram;
+    }
+
+    static String nameOf(String sql) {
+        if (sql == null) {
+            return UNNAMED;
+        }
+        Matcher matcher = NAME.matcher(sql);
+        return matcher.find() ? matcher.group(1) : UNNAMED;
+    }
+
+    public void executed(String name, long nanos, SQLException error) {
+        Meters meters = this.meters(name);
+        if (meters == null) {
+            return;
+        }
+        if (error == null) {
+            meters.success.record(nanos, TimeUnit.NANOSECONDS);
+        } else {
+            meters.failure.record(nanos, TimeUnit.NANOSECONDS);
+            meters.errors.increment();
+        }
+    }
+
+    public void rows(String name, long rows, long blobBytes) {
+        Meters meters = this.meters(name);
+        if (meters == null) {
+            return;
+        }
+        meters.rows.record(rows);
+        if (blobBytes > 0) {
+            meters.blobBytes.record(blobBytes);
+        }
+    }
+
+    /**
+     * registry is looked up lazily, data source is created before it
+     */
+    private Meters meters(String name) {
+        MeterRegistry registry = this.registry;
+        if (registry == null) {
+            registry = this.registryProvider.getIfAvailable();
+            if (registry == null) {
+                return null;
+            }
+            this.registry = registry;
+        }
+
+        Meters meters = this.meters.get(name);
+        if (meters == null) {
+            meters = this.meters.computeIfAbsent(name, key -> new Meters(this.registry, key, this.histogram));
+        }
+        return meters;
+    }
+
+    private static final class Meters {
+        private final Timer success;
+        private final Timer failure;
+        private final Counter errors;
+        private final DistributionSummary rows;
+        private final DistributionSummary blobBytes;
+
+        private Meters(MeterRegistry registry, String name, boolean histogram) {
+            this.success = timer(registry, name, "success", histogram);
+            this.failure = timer(registry, name, "error", histogram);
+            this.errors = Counter.builder("jdbc.statement.errors")
+                    .description("jdbc statement failed")
+                    .tag("name", name)
+                    .register(registry);
+            this.rows = DistributionSummary.builder("jdbc.statement.rows")
+                    .description("rows read or updated by jdbc statement")
+                    .tag("name", name)
+                    .publishPercentileHistogram(histogram)
+                    .register(registry);
+            this.blobBytes = DistributionSummary.builder("jdbc.statement.blob.bytes")
+                    .description("bytes of binary column read by jdbc statement")
+                    .baseUnit("bytes")
+                    .tag("name", name)
+                    .publishPercentileHistogram(histogram)
+                    .register(registry);
+        }
+
+        private static Timer timer(MeterRegistry registry, String name, String outcome, boolean histogram) {
+            return Timer.builder("jdbc.statement")
+                    .description("execution time of jdbc statement, without reading the result")
+                    .tag("name", name)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram(histogram)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.tabeldata.configs;
+
+import com.tabeldata.auth.service.PasswordEncoderBusyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * answer {@code 503} with {@code Retry-After} when password encoder is busy outside of token endpoint, e.g. client
+ * secret check by basic authentication or form login. Must be ordered before spring security filter chain.
+ */
+public class PasswordEncoderBusyFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | RuntimeException e) {
+            PasswordEncoderBusyException busy = PasswordEncoderBusyException.find(e);
+            if (busy == null || response.isCommitted()) {
+                throw e;
+            }
+
+            response.resetBuffer();
+            response.setStatus(busy.getHttpErrorCode());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()));
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            response.getWriter().write("{\"error\":\"" + busy.getOAuth2ErrorCode() + "\"," +
+                    "\"error_description\":\"authentication is busy, retry later\"}");
+        }
+    }
+}
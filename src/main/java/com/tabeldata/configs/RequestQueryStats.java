@@ -0,0 +1,108 @@
+package com.tabeldata.configs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * sql statements executed, connections borrowed and bytes allocated by the current thread since {@link #open()}.
+ * <p>
+ * Counted by {@link InstrumentedDataSource}, so nothing is counted when {@code jdbc.metrics.enabled=false}.
+ * Work done on other thread (async history writer, password encoder pool) is not included.
+ * <pre>
+ * try (RequestQueryStats stats = RequestQueryStats.open()) {
+ *     mockMvc.perform(post("/oauth/token")...);
+ *     assertTrue(stats.getStatements() &lt;= 5);
+ * }
+ * </pre>
+ */
+public final class RequestQueryStats implements AutoCloseable {
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private final RequestQueryStats previous;
+    private final long allocatedAtOpen;
+    private long allocatedAtClose = -1;
+    private int statements;
+    private int connections;
+
+    private RequestQueryStats(RequestQueryStats previous) {
+        this.previous = previous;
+        this.allocatedAtOpen = allocatedBytes();
+    }
+
+    /**
+     * start counting on the current thread until {@link #close()}, nested stats count into every open one
+     */
+    public static RequestQueryStats open() {
+        RequestQueryStats stats = new RequestQueryStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void statementExecuted() {
+        for (RequestQueryStats stats = CURRENT.get(); stats != null; stats = stats.previous) {
+            stats.statements++;
+        }
+    }
+
+    static void connectionBorrowed() {
+        for (RequestQueryStats stats = CURRENT.get(); stats != null; stats = stats.previous) {
+            stats.connections++;
+        }
+    }
+
+    public int getStatements() {
+        return this.statements;
+    }
+
+    public int getConnections() {
+        return this.connections;
+    }
+
+    /**
+     * bytes allocated by the thread so far (or until closed), -1 when the jvm doesn't support it
+     */
+    public long getAllocatedBytes() {
+        if (this.allocatedAtOpen < 0) {
+            return -1;
+        }
+        long now = this.allocatedAtClose >= 0 ? this.allocatedAtClose : allocatedBytes();
+        return now - this.allocatedAtOpen;
+    }
+
+    @Override
+    public void close() {
+        if (this.allocatedAtClose < 0) {
+            this.allocatedAtClose = allocatedBytes();
+        }
+        if (CURRENT.get() == this) {
+            if (this.previous != null) {
+                CURRENT.set(this.previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + this.statements + ", connections=" + this.connections +
+                ", allocated=" + this.getAllocatedBytes();
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATION != null ? ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation;
+            }
+        }
+        return null;
+    }
+}
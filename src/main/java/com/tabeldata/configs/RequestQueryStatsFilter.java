@@ -0,0 +1,105 @@
+package com.tabeldata.configs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * add {@link RequestQueryStats} of the request as response header, only registered with profile {@code debug}.
+ * The body is never buffered: headers are written with the stats counted so far just before the response
+ * start writing (or is committed), so a streaming response only report the work done before its first byte.
+ */
+@Slf4j
+public class RequestQueryStatsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String CONNECTIONS_HEADER = "X-Sql-Connections";
+    public static final String ALLOCATED_HEADER = "X-Allocated-Bytes";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryStats stats = RequestQueryStats.open();
+        StatsHeaderResponse wrapper = new StatsHeaderResponse(response, stats);
+        try {
+            filterChain.doFilter(request, wrapper);
+        } finally {
+            stats.close();
+            wrapper.writeStatsHeaders();
+            log.debug("{} {}: {}", request.getMethod(), request.getRequestURI(), stats);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    /**
+     * set the stats headers once, before anything can commit the response
+     */
+    private static class StatsHeaderResponse extends HttpServletResponseWrapper {
+
+        private final RequestQueryStats stats;
+        private boolean written;
+
+        StatsHeaderResponse(HttpServletResponse response, RequestQueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeStatsHeaders() {
+            if (this.written || isCommitted()) {
+                return;
+            }
+            this.written = true;
+            setHeader(STATEMENTS_HEADER, String.valueOf(this.stats.getStatements()));
+            setHeader(CONNECTIONS_HEADER, String.valueOf(this.stats.getConnections()));
+            setHeader(ALLOCATED_HEADER, String.valueOf(this.stats.getAllocatedBytes()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeStatsHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeStatsHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeStatsHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeStatsHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeStatsHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeStatsHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.tabeldata.configs;
 
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
@@ -10,6 +15,23 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebApplication implements WebMvcConfigurer {
 
+    @Bean
+    public FilterRegistrationBean<PasswordEncoderBusyFilter> passwordEncoderBusyFilter() {
+        FilterRegistrationBean<PasswordEncoderBusyFilter> registration =
+                new FilterRegistrationBean<>(new PasswordEncoderBusyFilter());
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    @Bean
+    @Profile("debug")
+    public FilterRegistrationBean<RequestQueryStatsFilter> requestQueryStatsFilter() {
+        FilterRegistrationBean<RequestQueryStatsFilter> registration =
+                new FilterRegistrationBean<>(new RequestQueryStatsFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("swagger-ui.html")
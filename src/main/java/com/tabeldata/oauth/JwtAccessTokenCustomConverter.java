@@ -0,0 +1,91 @@
+package com.tabeldata.oauth;
+
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * {@link JwtAccessTokenConverter} which sign with active key of {@link JwtSigningKeyStore} and write its {@code kid}
+ * into jwt header, and verify by the key named in the header. Without key store it's the plain symmetric converter.
+ */
+public class JwtAccessTokenCustomConverter extends JwtAccessTokenConverter {
+
+    private static final String KEY_ID = "kid";
+
+    private final JsonParser jsonParser = JsonParserFactory.create();
+    private JwtSigningKeyStore signingKeys;
+    private Map<String, String> signingHeaders = Collections.emptyMap();
+
+    public JwtSigningKeyStore getSigningKeys() {
+        return signingKeys;
+    }
+
+    public void setSigningKeys(JwtSigningKeyStore signingKeys) {
+        this.signingKeys = signingKeys;
+        this.signingHeaders = Collections.singletonMap(KEY_ID, signingKeys.getActiveKid());
+        this.setKeyPair(signingKeys.getActiveKeyPair());
+    }
+
+    /**
+     * verify signature and read claims of jwt
+     *
+     * @param token encoded jwt
+     * @return claims
+     * @throws InvalidTokenException when token can't be decoded or signature invalid
+     */
+    public Map<String, Object> decodeClaims(String token) throws InvalidTokenException {
+        return this.decode(token);
+    }
+
+    @Override
+    protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        if (this.signingKeys == null) {
+            return super.encode(accessToken, authentication);
+        }
+
+        String content;
+        try {
+            content = this.jsonParser.formatMap(this.getAccessTokenConverter().convertAccessToken(accessToken, authentication));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot convert access token to JSON", e);
+        }
+        return JwtHelper.encode(content, this.signingKeys.getActiveSigner(), this.signingHeaders).getEncoded();
+    }
+
+    @Override
+    protected Map<String, Object> decode(String token) {
+        if (this.signingKeys == null) {
+            return super.decode(token);
+        }
+
+        try {
+            String kid = JwtHelper.headers(token).get(KEY_ID);
+            SignatureVerifier verifier = this.signingKeys.getVerifier(kid);
+            if (verifier == null) {
+                throw new InvalidTokenException("Unknown signing key: " + kid);
+            }
+
+            Jwt jwt = JwtHelper.decodeAndVerify(token, verifier);
+            Map<String, Object> claims = this.jsonParser.parseMap(jwt.getClaims());
+            Object exp = claims.get(EXP);
+            if (exp instanceof Integer) {
+                claims.put(EXP, ((Integer) exp).longValue());
+            }
+            this.getJwtClaimsSetVerifier().verify(claims);
+            return claims;
+        } catch (InvalidTokenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", e);
+        }
+    }
+}
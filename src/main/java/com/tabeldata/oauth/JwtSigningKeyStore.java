@@ -0,0 +1,142 @@
+package com.tabeldata.oauth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.Resource;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.jwt.crypto.sign.Signer;
+import org.springframework.util.Assert;
+import org.springframework.util.Base64Utils;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.*;
+
+/**
+ * RSA key pairs of jwt signature, loaded once from keystore. The alias of a key entry is its {@code kid}.
+ * <p>
+ * Token is signed by the active key. Every key in the keystore verify tokens and is published as JWKS,
+ * so rotation is: add new key, make it active, remove the old one after the last token signed by it expired.
+ */
+public class JwtSigningKeyStore {
+
+    private static final String ALGORITHM = "RS256";
+
+    private final String activeKid;
+    private final KeyPair activeKeyPair;
+    private final Signer activeSigner;
+    private final Map<String, SignatureVerifier> verifiers;
+    private final String jwks;
+    private final String jwksETag;
+
+    private JwtSigningKeyStore(String activeKid, KeyPair activeKeyPair, Map<String, RSAPublicKey> publicKeys) {
+        this.activeKid = activeKid;
+        this.activeKeyPair = activeKeyPair;
+        this.activeSigner = new RsaSigner((RSAPrivateKey) activeKeyPair.getPrivate());
+
+        Map<String, SignatureVerifier> verifiers = new HashMap<>();
+        List<Map<String, String>> keys = new ArrayList<>();
+        for (Map.Entry<String, RSAPublicKey> entry : publicKeys.entrySet()) {
+            verifiers.put(entry.getKey(), new RsaVerifier(entry.getValue()));
+
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "RSA");
+            jwk.put("kid", entry.getKey());
+            jwk.put("use", "sig");
+            jwk.put("alg", ALGORITHM);
+            jwk.put("n", base64Url(entry.getValue().getModulus()));
+            jwk.put("e", base64Url(entry.getValue().getPublicExponent()));
+            keys.add(jwk);
+        }
+        this.verifiers = Collections.unmodifiableMap(verifiers);
+
+        try {
+            this.jwks = new ObjectMapper().writeValueAsString(Collections.singletonMap("keys", keys));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Can't write JWKS", e);
+        }
+        this.jwksETag = "\"" + DigestUtils.md5DigestAsHex(this.jwks.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * @param location    keystore file
+     * @param type        keystore type, {@code JKS} or {@code PKCS12}
+     * @param password    password of keystore and its keys
+     * @param activeAlias alias of key used to sign new token, first key entry when empty
+     */
+    public static JwtSigningKeyStore load(Resource location, String type, String password, String activeAlias) {
+        Assert.notNull(location, "Keystore location required");
+        char[] secret = password != null ? password.toCharArray() : new char[0];
+        try (InputStream input = location.getInputStream()) {
+            KeyStore keyStore = KeyStore.getInstance(type);
+            keyStore.load(input, secret);
+
+            Map<String, RSAPublicKey> publicKeys = new TreeMap<>();
+            for (String alias : Collections.list(keyStore.aliases())) {
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (keyStore.isKeyEntry(alias) && certificate != null && certificate.getPublicKey() instanceof RSAPublicKey) {
+                    publicKeys.put(alias, (RSAPublicKey) certificate.getPublicKey());
+                }
+            }
+            Assert.state(!publicKeys.isEmpty(), "No RSA key entry in keystore " + location);
+
+            String kid = activeAlias != null && !activeAlias.isEmpty() ? activeAlias : publicKeys.keySet().iterator().next();
+            Assert.state(publicKeys.containsKey(kid), "No RSA key entry with alias " + kid + " in keystore " + location);
+            Key privateKey = keyStore.getKey(kid, secret);
+            PublicKey publicKey = publicKeys.get(kid);
+            return new JwtSigningKeyStore(kid, new KeyPair(publicKey, (PrivateKey) privateKey), publicKeys);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Can't load keystore " + location, e);
+        }
+    }
+
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    public KeyPair getActiveKeyPair() {
+        return activeKeyPair;
+    }
+
+    public Signer getActiveSigner() {
+        return activeSigner;
+    }
+
+    /**
+     * @param kid key id from jwt header, active key when null
+     * @return cached verifier, null for unknown key
+     */
+    public SignatureVerifier getVerifier(String kid) {
+        return verifiers.get(kid != null ? kid : activeKid);
+    }
+
+    public String getJwks() {
+        return jwks;
+    }
+
+    public String getJwksETag() {
+        return jwksETag;
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64Utils.encodeToUrlSafeString(bytes).replace("=", "");
+    }
+}
@@ -1,6 +1,9 @@
 package com.tabeldata.oauth;
 
+import com.tabeldata.oauth.service.JwtResourceServerTokenServices;
+import com.tabeldata.oauth.service.RevokedAccessTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -16,11 +19,24 @@ public class OauthResourceServerConfiguration extends ResourceServerConfigurerAd
 
     @Autowired
     private TokenStore tokenStore;
+    @Autowired
+    private JwtAccessTokenCustomConverter accessTokenConverter;
+    @Autowired
+    private RevokedAccessTokenService revokedAccessTokenService;
+
+    /**
+     * {@code token-store} read every access token from database, {@code jwt} only verify signature and expiry
+     */
+    @Value("${oauth.resource-server.validation:token-store}")
+    private String validation;
 
     @Override
     public void configure(ResourceServerSecurityConfigurer resources) throws Exception {
         resources.resourceId("oauth2-resource")
                 .tokenStore(tokenStore);
+        if ("jwt".equalsIgnoreCase(validation)) {
+            resources.tokenServices(new JwtResourceServerTokenServices(accessTokenConverter, revokedAccessTokenService));
+        }
     }
 
     @Override
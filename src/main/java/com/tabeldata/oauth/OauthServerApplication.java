@@ -1,13 +1,26 @@
 package com.tabeldata.oauth;
 
+import com.tabeldata.auth.service.VerifiedSecretCachingPasswordEncoder;
+import com.tabeldata.oauth.codec.CompactTokenCodec;
+import com.tabeldata.oauth.codec.JdkSerializationTokenCodec;
+import com.tabeldata.oauth.codec.TokenCodec;
+import com.tabeldata.oauth.endpoint.OauthWebResponseExceptionTranslator;
+import com.tabeldata.oauth.repository.CachingJdbcTokenStore;
+import com.tabeldata.oauth.repository.HistoryAccessTokenWriter;
 import com.tabeldata.oauth.repository.JdbcTokenStoreCustomizer;
 import com.tabeldata.oauth.repository.OauthClientDetailsJdbcLoader;
+import com.tabeldata.oauth.repository.TokenKeyHasher;
 import com.tabeldata.oauth.service.DefaultTokenService;
+import com.tabeldata.oauth.service.RevokedAccessTokenService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.config.annotation.configurers.ClientDetailsServiceConfigurer;
@@ -22,7 +35,7 @@ import org.springframework.security.oauth2.provider.error.OAuth2AccessDeniedHand
 import org.springframework.security.oauth2.provider.request.DefaultOAuth2RequestFactory;
 import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
 import org.springframework.security.oauth2.provider.token.TokenStore;
-import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
 import java.util.Arrays;
@@ -45,17 +58,120 @@ public class OauthServerApplication extends AuthorizationServerConfigurerAdapter
     @Autowired
     @Qualifier("dataSource")
     private DataSource dataSource;
+    @Autowired
+    private RevokedAccessTokenService revokedAccessTokenService;
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${oauth.token-store.cache.enabled:true}")
+    private boolean tokenCacheEnabled;
+    @Value("${oauth.token-store.cache.maximum-size:10000}")
+    private long tokenCacheMaximumSize;
+    @Value("${oauth.token-store.cache.max-time-to-live-seconds:60}")
+    private long tokenCacheMaxTimeToLiveSeconds;
+    @Value("${oauth.token-store.codec:compact}")
+    private String tokenCodecName;
+    @Value("${oauth.token-store.key-algorithm:MD5}")
+    private String tokenKeyAlgorithm;
+    @Value("${oauth.token-store.legacy-md5-key:true}")
+    private boolean tokenKeyLegacyMd5;
+    @Value("${oauth.token-store.history.async:true}")
+    private boolean historyAsync;
+    @Value("${oauth.token-store.history.queue-capacity:10000}")
+    private int historyQueueCapacity;
+    @Value("${oauth.token-store.history.batch-size:200}")
+    private int historyBatchSize;
+    @Value("${oauth.token-store.history.flush-interval-ms:200}")
+    private long historyFlushIntervalMillis;
+    @Value("${oauth.token-store.history.overflow-policy:block}")
+    private String historyOverflowPolicy;
+    @Value("${oauth.client-details.secret-cache.enabled:true}")
+    private boolean clientSecretCacheEnabled;
+    @Value("${oauth.client-details.secret-cache.maximum-size:1000}")
+    private long clientSecretCacheMaximumSize;
+    @Value("${oauth.client-details.secret-cache.ttl-seconds:300}")
+    private long clientSecretCacheTtlSeconds;
+    @Value("${oauth.jwt.signing-key:123}")
+    private String jwtSigningKey;
+    @Value("${oauth.jwt.key-store.location:}")
+    private String jwtKeyStoreLocation;
+    @Value("${oauth.jwt.key-store.type:JKS}")
+    private String jwtKeyStoreType;
+    @Value("${oauth.jwt.key-store.password:}")
+    private String jwtKeyStorePassword;
+    @Value("${oauth.jwt.key-store.active-alias:}")
+    private String jwtKeyStoreActiveAlias;
 
+    /**
+     * RSA key pairs from {@code oauth.jwt.key-store.*} when configured, otherwise symmetric {@code oauth.jwt.signing-key}
+     */
     @Bean
-    public JwtAccessTokenConverter accessTokenConverter() {
-        JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
-        converter.setSigningKey("123");
+    public JwtAccessTokenCustomConverter accessTokenConverter() {
+        JwtAccessTokenCustomConverter converter = new JwtAccessTokenCustomConverter();
+        if (StringUtils.hasText(jwtKeyStoreLocation)) {
+            converter.setSigningKeys(JwtSigningKeyStore.load(
+                    new DefaultResourceLoader().getResource(jwtKeyStoreLocation),
+                    jwtKeyStoreType,
+                    jwtKeyStorePassword,
+                    jwtKeyStoreActiveAlias));
+        } else {
+            converter.setSigningKey(jwtSigningKey);
+        }
         return converter;
     }
 
+    /**
+     * {@code jdk} write legacy java serialization, use it while old instance still running in rolling upgrade
+     */
+    @Bean
+    public TokenCodec tokenCodec() {
+        if ("jdk".equalsIgnoreCase(tokenCodecName)) {
+            return new JdkSerializationTokenCodec();
+        }
+        return new CompactTokenCodec();
+    }
+
+    /**
+     * closed on shutdown, so queued history is written before the datasource is closed
+     */
+    @Bean
+    @DependsOn("dataSource")
+    public HistoryAccessTokenWriter historyAccessTokenWriter() {
+        HistoryAccessTokenWriter writer = new HistoryAccessTokenWriter(
+                dataSource,
+                historyQueueCapacity,
+                historyBatchSize,
+                historyFlushIntervalMillis,
+                HistoryAccessTokenWriter.OverflowPolicy.valueOf(historyOverflowPolicy.toUpperCase()));
+        if (meterRegistry != null) {
+            writer.bindTo(meterRegistry);
+        }
+        return writer;
+    }
+
     @Bean
     public JdbcTokenStoreCustomizer tokenStore() {
-        JdbcTokenStoreCustomizer tokenStore = new JdbcTokenStoreCustomizer(dataSource);
+        JdbcTokenStoreCustomizer tokenStore;
+        if (tokenCacheEnabled) {
+            CachingJdbcTokenStore cachingTokenStore = new CachingJdbcTokenStore(
+                    dataSource, tokenCacheMaximumSize, tokenCacheMaxTimeToLiveSeconds);
+            if (meterRegistry != null) {
+                cachingTokenStore.bindTo(meterRegistry);
+            }
+            tokenStore = cachingTokenStore;
+        } else {
+            tokenStore = new JdbcTokenStoreCustomizer(dataSource);
+        }
+
+        tokenStore.setTokenCodec(tokenCodec());
+        TokenKeyHasher tokenKeyHasher = new TokenKeyHasher(tokenKeyAlgorithm);
+        tokenStore.setTokenKeyHasher(tokenKeyHasher);
+        if (tokenKeyLegacyMd5 && !TokenKeyHasher.MD5.equalsIgnoreCase(tokenKeyHasher.getAlgorithm())) {
+            tokenStore.setLegacyTokenKeyHasher(new TokenKeyHasher(TokenKeyHasher.MD5));
+        }
+        if (historyAsync) {
+            tokenStore.setHistoryWriter(historyAccessTokenWriter());
+        }
         return tokenStore;
     }
 
@@ -65,16 +181,34 @@ public class OauthServerApplication extends AuthorizationServerConfigurerAdapter
         DefaultTokenService defaultTokenServices = new DefaultTokenService(
                 token, oauthClientService, tokenEnhancer, authenticationManager);
         defaultTokenServices.setSupportRefreshToken(false);
+        defaultTokenServices.setRevokedAccessTokens(revokedAccessTokenService);
         return defaultTokenServices;
     }
 
 
+    /**
+     * client secret verified by bcrypt once, then remembered for {@code oauth.client-details.secret-cache.ttl-seconds}.
+     * Not a bean, user password is never cached
+     */
+    private PasswordEncoder clientSecretEncoder() {
+        if (!clientSecretCacheEnabled) {
+            return passwordEncoder;
+        }
+
+        VerifiedSecretCachingPasswordEncoder encoder = new VerifiedSecretCachingPasswordEncoder(
+                passwordEncoder, clientSecretCacheMaximumSize, clientSecretCacheTtlSeconds);
+        if (meterRegistry != null) {
+            encoder.bindTo(meterRegistry);
+        }
+        return encoder;
+    }
+
     @Override
     public void configure(AuthorizationServerSecurityConfigurer oauthServer) throws Exception {
         oauthServer
                 .tokenKeyAccess("permitAll()")
                 .checkTokenAccess("permitAll()")
-                .passwordEncoder(passwordEncoder);
+                .passwordEncoder(clientSecretEncoder());
     }
 
     @Override
@@ -91,6 +225,7 @@ public class OauthServerApplication extends AuthorizationServerConfigurerAdapter
                 .tokenStore(tokenStore())
                 .tokenEnhancer(tokenEnhancerChain)
                 .authenticationManager(authenticationManager)
+                .exceptionTranslator(new OauthWebResponseExceptionTranslator())
                 .allowedTokenEndpointRequestMethods(GET, POST, PUT, DELETE);
     }
 
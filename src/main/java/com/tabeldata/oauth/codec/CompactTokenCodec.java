@@ -0,0 +1,637 @@
+package com.tabeldata.oauth.codec;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * versioned binary layout for token and authentication.
+ * <p>
+ * Every value start with 3 bytes header {@code 'T', kind, version}, strings and collections are prefixed by
+ * unsigned varint of {@code length + 1} (zero means null). Value which has no compact layout, for example custom
+ * principal or details, is embedded as java serialized bytes so nothing is lost.
+ * <p>
+ * Decode accept the legacy java serialized value, so rows written before this codec still readable.
+ */
+public class CompactTokenCodec implements TokenCodec {
+
+    static final byte MAGIC = 'T';
+    static final byte VERSION = 1;
+    static final byte KIND_ACCESS_TOKEN = 1;
+    static final byte KIND_REFRESH_TOKEN = 2;
+    static final byte KIND_AUTHENTICATION = 3;
+
+    private static final int REFRESH_NONE = 0;
+    private static final int REFRESH_PLAIN = 1;
+    private static final int REFRESH_EXPIRING = 2;
+
+    private static final int USER_NONE = 0;
+    private static final int USER_PASSWORD_TOKEN = 1;
+    private static final int USER_SERIALIZED = 2;
+
+    private static final int PRINCIPAL_STRING = 1;
+    private static final int PRINCIPAL_USER = 2;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INTEGER = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_BOOLEAN = 4;
+    private static final int TAG_MAP = 5;
+    private static final int TAG_LIST = 6;
+    private static final int TAG_SET = 7;
+    private static final int TAG_SERIALIZED = 8;
+
+    private final JdkSerializationTokenCodec legacy = new JdkSerializationTokenCodec();
+
+    @Override
+    public byte[] encodeAccessToken(OAuth2AccessToken token) {
+        if (token.getClass() != DefaultOAuth2AccessToken.class || !isCompactRefreshToken(token.getRefreshToken())) {
+            return legacy.encodeAccessToken(token);
+        }
+
+        Writer writer = new Writer(KIND_ACCESS_TOKEN);
+        writer.writeString(token.getValue());
+        writer.writeDate(token.getExpiration());
+        writer.writeString(token.getTokenType());
+        writer.writeStrings(token.getScope());
+        writeRefreshToken(writer, token.getRefreshToken());
+        writer.writeMap(token.getAdditionalInformation());
+        return writer.toByteArray();
+    }
+
+    @Override
+    public OAuth2AccessToken decodeAccessToken(byte[] bytes) {
+        if (JdkSerializationTokenCodec.isJdkSerialized(bytes)) {
+            return legacy.decodeAccessToken(bytes);
+        }
+
+        Reader reader = new Reader(bytes, KIND_ACCESS_TOKEN);
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(reader.readString());
+        token.setExpiration(reader.readDate());
+        token.setTokenType(reader.readString());
+        token.setScope(reader.readStrings());
+        token.setRefreshToken(readRefreshToken(reader));
+        token.setAdditionalInformation(reader.readMap());
+        return token;
+    }
+
+    /**
+     * read only the token value, without building the whole access token
+     *
+     * @param bytes stored access token
+     * @return access token value
+     */
+    @Override
+    public String decodeAccessTokenValue(byte[] bytes) {
+        if (JdkSerializationTokenCodec.isJdkSerialized(bytes)) {
+            return legacy.decodeAccessToken(bytes).getValue();
+        }
+        return new Reader(bytes, KIND_ACCESS_TOKEN).readString();
+    }
+
+    @Override
+    public byte[] encodeRefreshToken(OAuth2RefreshToken token) {
+        if (!isCompactRefreshToken(token)) {
+            return legacy.encodeRefreshToken(token);
+        }
+
+        Writer writer = new Writer(KIND_REFRESH_TOKEN);
+        writeRefreshToken(writer, token);
+        return writer.toByteArray();
+    }
+
+    @Override
+    public OAuth2RefreshToken decodeRefreshToken(byte[] bytes) {
+        if (JdkSerializationTokenCodec.isJdkSerialized(bytes)) {
+            return legacy.decodeRefreshToken(bytes);
+        }
+        return readRefreshToken(new Reader(bytes, KIND_REFRESH_TOKEN));
+    }
+
+    @Override
+    public byte[] encodeAuthentication(OAuth2Authentication authentication) {
+        if (authentication.getClass() != OAuth2Authentication.class
+                || !isCompactAuthorities(authentication.getOAuth2Request().getAuthorities())) {
+            return legacy.encodeAuthentication(authentication);
+        }
+
+        Writer writer = new Writer(KIND_AUTHENTICATION);
+        writeRequest(writer, authentication.getOAuth2Request());
+        writeUserAuthentication(writer, authentication.getUserAuthentication());
+        writer.writeValue(authentication.getDetails());
+        return writer.toByteArray();
+    }
+
+    @Override
+    public OAuth2Authentication decodeAuthentication(byte[] bytes) {
+        if (JdkSerializationTokenCodec.isJdkSerialized(bytes)) {
+            return legacy.decodeAuthentication(bytes);
+        }
+
+        Reader reader = new Reader(bytes, KIND_AUTHENTICATION);
+        OAuth2Request request = readRequest(reader);
+        Authentication user = readUserAuthentication(reader);
+        OAuth2Authentication authentication = new OAuth2Authentication(request, user);
+        authentication.setDetails(reader.readValue());
+        return authentication;
+    }
+
+    private static boolean isCompactRefreshToken(OAuth2RefreshToken token) {
+        return token == null
+                || token.getClass() == DefaultOAuth2RefreshToken.class
+                || token.getClass() == DefaultExpiringOAuth2RefreshToken.class;
+    }
+
+    private static boolean isCompactAuthorities(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities == null) {
+            return true;
+        }
+        for (GrantedAuthority authority : authorities) {
+            if (authority.getClass() != SimpleGrantedAuthority.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeRefreshToken(Writer writer, OAuth2RefreshToken token) {
+        if (token == null) {
+            writer.writeVarInt(REFRESH_NONE);
+        } else if (token instanceof DefaultExpiringOAuth2RefreshToken) {
+            writer.writeVarInt(REFRESH_EXPIRING);
+            writer.writeString(token.getValue());
+            writer.writeDate(((DefaultExpiringOAuth2RefreshToken) token).getExpiration());
+        } else {
+            writer.writeVarInt(REFRESH_PLAIN);
+            writer.writeString(token.getValue());
+        }
+    }
+
+    private static OAuth2RefreshToken readRefreshToken(Reader reader) {
+        int type = reader.readVarInt();
+        switch (type) {
+            case REFRESH_NONE:
+                return null;
+            case REFRESH_PLAIN:
+                return new DefaultOAuth2RefreshToken(reader.readString());
+            case REFRESH_EXPIRING:
+                return new DefaultExpiringOAuth2RefreshToken(reader.readString(), reader.readDate());
+            default:
+                throw new IllegalArgumentException("Unknown refresh token type " + type);
+        }
+    }
+
+    private static void writeRequest(Writer writer, OAuth2Request request) {
+        writer.writeStringMap(request.getRequestParameters());
+        writer.writeString(request.getClientId());
+        writer.writeAuthorities(request.getAuthorities());
+        writer.writeBoolean(request.isApproved());
+        writer.writeStrings(request.getScope());
+        writer.writeStrings(request.getResourceIds());
+        writer.writeString(request.getRedirectUri());
+        writer.writeStrings(request.getResponseTypes());
+        writer.writeMap(request.getExtensions());
+
+        TokenRequest refresh = request.getRefreshTokenRequest();
+        writer.writeBoolean(refresh != null);
+        if (refresh != null) {
+            writer.writeStringMap(refresh.getRequestParameters());
+            writer.writeString(refresh.getClientId());
+            writer.writeStrings(refresh.getScope());
+            writer.writeString(refresh.getGrantType());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static OAuth2Request readRequest(Reader reader) {
+        Map<String, String> requestParameters = reader.readStringMap();
+        String clientId = reader.readString();
+        Collection<GrantedAuthority> authorities = reader.readAuthorities();
+        boolean approved = reader.readBoolean();
+        Set<String> scope = reader.readStrings();
+        Set<String> resourceIds = reader.readStrings();
+        String redirectUri = reader.readString();
+        Set<String> responseTypes = reader.readStrings();
+        Map<String, Serializable> extensions = (Map) reader.readMap();
+
+        OAuth2Request request = new OAuth2Request(
+                requestParameters, clientId, authorities, approved, scope, resourceIds, redirectUri, responseTypes, extensions);
+        if (reader.readBoolean()) {
+            request = request.refresh(new TokenRequest(
+                    reader.readStringMap(), reader.readString(), reader.readStrings(), reader.readString()));
+        }
+        return request;
+    }
+
+    private static void writeUserAuthentication(Writer writer, Authentication user) {
+        if (user == null) {
+            writer.writeVarInt(USER_NONE);
+            return;
+        }
+
+        Object principal = user.getPrincipal();
+        boolean compactPrincipal = principal instanceof String
+                || (principal != null && principal.getClass() == User.class && isCompactAuthorities(((User) principal).getAuthorities()));
+        boolean compact = user.getClass() == UsernamePasswordAuthenticationToken.class
+                && compactPrincipal
+                && (user.getCredentials() == null || user.getCredentials() instanceof String)
+                && isCompactAuthorities(user.getAuthorities())
+                && (user.isAuthenticated() || user.getAuthorities().isEmpty());
+        if (!compact) {
+            writer.writeVarInt(USER_SERIALIZED);
+            writer.writeBytes(SerializationUtils.serialize(user));
+            return;
+        }
+
+        writer.writeVarInt(USER_PASSWORD_TOKEN);
+        writer.writeBoolean(user.isAuthenticated());
+        if (principal instanceof String) {
+            writer.writeVarInt(PRINCIPAL_STRING);
+            writer.writeString((String) principal);
+        } else {
+            User details = (User) principal;
+            writer.writeVarInt(PRINCIPAL_USER);
+            writer.writeString(details.getUsername());
+            writer.writeString(details.getPassword());
+            writer.writeBoolean(details.isEnabled());
+            writer.writeBoolean(details.isAccountNonExpired());
+            writer.writeBoolean(details.isCredentialsNonExpired());
+            writer.writeBoolean(details.isAccountNonLocked());
+            writer.writeAuthorities(details.getAuthorities());
+        }
+        writer.writeString((String) user.getCredentials());
+        writer.writeAuthorities(user.getAuthorities());
+        writer.writeValue(user.getDetails());
+    }
+
+    private static Authentication readUserAuthentication(Reader reader) {
+        int type = reader.readVarInt();
+        switch (type) {
+            case USER_NONE:
+                return null;
+            case USER_SERIALIZED:
+                return (Authentication) SerializationUtils.deserialize(reader.readBytes());
+            case USER_PASSWORD_TOKEN:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown user authentication type " + type);
+        }
+
+        boolean authenticated = reader.readBoolean();
+        Object principal;
+        int principalType = reader.readVarInt();
+        if (principalType == PRINCIPAL_STRING) {
+            principal = reader.readString();
+        } else if (principalType == PRINCIPAL_USER) {
+            String username = reader.readString();
+            String password = reader.readString();
+            User user = new User(
+                    username,
+                    password != null ? password : "",
+                    reader.readBoolean(),
+                    reader.readBoolean(),
+                    reader.readBoolean(),
+                    reader.readBoolean(),
+                    reader.readAuthorities());
+            if (password == null) {
+                user.eraseCredentials();
+            }
+            principal = user;
+        } else {
+            throw new IllegalArgumentException("Unknown principal type " + principalType);
+        }
+
+        String credentials = reader.readString();
+        Collection<GrantedAuthority> authorities = reader.readAuthorities();
+        UsernamePasswordAuthenticationToken token = authenticated
+                ? new UsernamePasswordAuthenticationToken(principal, credentials, authorities)
+                : new UsernamePasswordAuthenticationToken(principal, credentials);
+        token.setDetails(reader.readValue());
+        return token;
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private Writer(byte kind) {
+            bytes.write(MAGIC);
+            bytes.write(kind);
+            bytes.write(VERSION);
+        }
+
+        private byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes.write(value);
+        }
+
+        private void writeBoolean(boolean value) {
+            bytes.write(value ? 1 : 0);
+        }
+
+        private void writeLong(long value) {
+            try {
+                out.writeLong(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void writeBytes(byte[] value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(value.length + 1);
+            bytes.write(value, 0, value.length);
+        }
+
+        private void writeString(String value) {
+            writeBytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        private void writeDate(Date value) {
+            writeBoolean(value != null);
+            if (value != null) {
+                writeLong(value.getTime());
+            }
+        }
+
+        private void writeStrings(Collection<String> values) {
+            if (values == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(values.size() + 1);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeStringMap(Map<String, String> values) {
+            if (values == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(values.size() + 1);
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        private void writeAuthorities(Collection<? extends GrantedAuthority> authorities) {
+            if (authorities == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(authorities.size() + 1);
+            for (GrantedAuthority authority : authorities) {
+                writeString(authority.getAuthority());
+            }
+        }
+
+        private void writeMap(Map<String, ?> values) {
+            if (values == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(values.size() + 1);
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                writeString(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeValue(Object value) {
+            if (value == null) {
+                writeVarInt(TAG_NULL);
+            } else if (value instanceof String) {
+                writeVarInt(TAG_STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                writeVarInt(TAG_INTEGER);
+                writeLong((Integer) value);
+            } else if (value instanceof Long) {
+                writeVarInt(TAG_LONG);
+                writeLong((Long) value);
+            } else if (value instanceof Boolean) {
+                writeVarInt(TAG_BOOLEAN);
+                writeBoolean((Boolean) value);
+            } else if (value instanceof Map && hasStringKeys((Map<?, ?>) value)) {
+                writeVarInt(TAG_MAP);
+                writeMap((Map<String, ?>) value);
+            } else if (value instanceof List) {
+                writeVarInt(TAG_LIST);
+                writeValues((Collection<?>) value);
+            } else if (value instanceof Set) {
+                writeVarInt(TAG_SET);
+                writeValues((Collection<?>) value);
+            } else if (value instanceof Serializable) {
+                writeVarInt(TAG_SERIALIZED);
+                writeBytes(SerializationUtils.serialize(value));
+            } else {
+                throw new IllegalArgumentException("Can't encode value of " + value.getClass());
+            }
+        }
+
+        private void writeValues(Collection<?> values) {
+            writeVarInt(values.size() + 1);
+            for (Object value : values) {
+                writeValue(value);
+            }
+        }
+
+        private static boolean hasStringKeys(Map<?, ?> values) {
+            for (Object key : values.keySet()) {
+                if (!(key instanceof String)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+
+        private Reader(byte[] bytes, byte kind) {
+            if (bytes == null || bytes.length < 3 || bytes[0] != MAGIC) {
+                throw new IllegalArgumentException("Unknown token format");
+            }
+            if (bytes[1] != kind) {
+                throw new IllegalArgumentException("Expected kind " + kind + " but was " + bytes[1]);
+            }
+            if (bytes[2] != VERSION) {
+                throw new IllegalArgumentException("Unsupported token format version " + bytes[2]);
+            }
+            this.in = new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3));
+        }
+
+        private int readVarInt() {
+            try {
+                int value = 0;
+                for (int shift = 0; shift < 35; shift += 7) {
+                    int b = in.readUnsignedByte();
+                    value |= (b & 0x7F) << shift;
+                    if ((b & 0x80) == 0) {
+                        return value;
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Corrupted token", e);
+            }
+            throw new IllegalArgumentException("Corrupted token, varint too long");
+        }
+
+        private boolean readBoolean() {
+            try {
+                return in.readBoolean();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Corrupted token", e);
+            }
+        }
+
+        private long readLong() {
+            try {
+                return in.readLong();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Corrupted token", e);
+            }
+        }
+
+        private byte[] readBytes() {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            byte[] value = new byte[length - 1];
+            try {
+                in.readFully(value);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Corrupted token", e);
+            }
+            return value;
+        }
+
+        private String readString() {
+            byte[] value = readBytes();
+            return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+        }
+
+        private Date readDate() {
+            return readBoolean() ? new Date(readLong()) : null;
+        }
+
+        private Set<String> readStrings() {
+            int size = readVarInt();
+            if (size == 0) {
+                return null;
+            }
+            Set<String> values = new LinkedHashSet<>();
+            for (int i = 1; i < size; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private Map<String, String> readStringMap() {
+            int size = readVarInt();
+            if (size == 0) {
+                return null;
+            }
+            Map<String, String> values = new LinkedHashMap<>();
+            for (int i = 1; i < size; i++) {
+                values.put(readString(), readString());
+            }
+            return values;
+        }
+
+        private Collection<GrantedAuthority> readAuthorities() {
+            int size = readVarInt();
+            if (size == 0) {
+                return null;
+            }
+            List<GrantedAuthority> authorities = new ArrayList<>(size - 1);
+            for (int i = 1; i < size; i++) {
+                authorities.add(new SimpleGrantedAuthority(readString()));
+            }
+            return authorities;
+        }
+
+        private Map<String, Object> readMap() {
+            int size = readVarInt();
+            if (size == 0) {
+                return null;
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 1; i < size; i++) {
+                values.put(readString(), readValue());
+            }
+            return values;
+        }
+
+        private Object readValue() {
+            int tag = readVarInt();
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_STRING:
+                    return readString();
+                case TAG_INTEGER:
+                    return (int) readLong();
+                case TAG_LONG:
+                    return readLong();
+                case TAG_BOOLEAN:
+                    return readBoolean();
+                case TAG_MAP:
+                    return readMap();
+                case TAG_LIST:
+                    return readValues(new ArrayList<>());
+                case TAG_SET:
+                    return readValues(new LinkedHashSet<>());
+                case TAG_SERIALIZED:
+                    return SerializationUtils.deserialize(readBytes());
+                default:
+                    throw new IllegalArgumentException("Unknown value tag " + tag);
+            }
+        }
+
+        private <T extends Collection<Object>> T readValues(T values) {
+            int size = readVarInt();
+            for (int i = 1; i < size; i++) {
+                values.add(readValue());
+            }
+            return values;
+        }
+    }
+}
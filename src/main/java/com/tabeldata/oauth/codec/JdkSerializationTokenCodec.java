@@ -0,0 +1,53 @@
+package com.tabeldata.oauth.codec;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * legacy format, java object serialization same as {@link org.springframework.security.oauth2.provider.token.store.JdbcTokenStore}
+ */
+public class JdkSerializationTokenCodec implements TokenCodec {
+
+    private static final byte STREAM_MAGIC_FIRST = (byte) 0xAC;
+    private static final byte STREAM_MAGIC_SECOND = (byte) 0xED;
+
+    /**
+     * @param bytes stored value
+     * @return true when value written by java object serialization
+     */
+    public static boolean isJdkSerialized(byte[] bytes) {
+        return bytes != null && bytes.length > 1 && bytes[0] == STREAM_MAGIC_FIRST && bytes[1] == STREAM_MAGIC_SECOND;
+    }
+
+    @Override
+    public byte[] encodeAccessToken(OAuth2AccessToken token) {
+        return SerializationUtils.serialize(token);
+    }
+
+    @Override
+    public OAuth2AccessToken decodeAccessToken(byte[] bytes) {
+        return (OAuth2AccessToken) SerializationUtils.deserialize(bytes);
+    }
+
+    @Override
+    public byte[] encodeRefreshToken(OAuth2RefreshToken token) {
+        return SerializationUtils.serialize(token);
+    }
+
+    @Override
+    public OAuth2RefreshToken decodeRefreshToken(byte[] bytes) {
+        return (OAuth2RefreshToken) SerializationUtils.deserialize(bytes);
+    }
+
+    @Override
+    public byte[] encodeAuthentication(OAuth2Authentication authentication) {
+        return SerializationUtils.serialize(authentication);
+    }
+
+    @Override
+    public OAuth2Authentication decodeAuthentication(byte[] bytes) {
+        return (OAuth2Authentication) SerializationUtils.deserialize(bytes);
+    }
+}
@@ -0,0 +1,34 @@
+package com.tabeldata.oauth.codec;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * encode / decode token and authentication stored in bytea columns of {@code oauth.access_token},
+ * {@code oauth.refresh_token} and {@code oauth.history_access_token}.
+ * <p>
+ * Decode of corrupted or unknown value must throw {@link IllegalArgumentException},
+ * token store remove the row on that exception.
+ */
+public interface TokenCodec {
+
+    byte[] encodeAccessToken(OAuth2AccessToken token);
+
+    OAuth2AccessToken decodeAccessToken(byte[] bytes);
+
+    /**
+     * only the value of stored access token, codec can override it to skip building the whole token
+     */
+    default String decodeAccessTokenValue(byte[] bytes) {
+        return this.decodeAccessToken(bytes).getValue();
+    }
+
+    byte[] encodeRefreshToken(OAuth2RefreshToken token);
+
+    OAuth2RefreshToken decodeRefreshToken(byte[] bytes);
+
+    byte[] encodeAuthentication(OAuth2Authentication authentication);
+
+    OAuth2Authentication decodeAuthentication(byte[] bytes);
+}
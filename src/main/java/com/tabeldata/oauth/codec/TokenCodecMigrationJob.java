@@ -0,0 +1,203 @@
+package com.tabeldata.oauth.codec;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * online migration of token stored in legacy java serialization format to configured {@link TokenCodec}.
+ * <p>
+ * Every run re-encode one batch per table, walking by primary key. Update only applied when the row still have
+ * the same bytes as it was read, so token stored or removed in between is left as is. Value the codec can't
+ * write compactly (it fall back to java serialization) is skipped.
+ */
+@Slf4j
+@Component
+public class TokenCodecMigrationJob {
+
+    private static final String LEGACY_TOKEN = "substring(token from 1 for 2) = decode('aced', 'hex')";
+    private static final String LEGACY_AUTHENTICATION = "substring(authentication from 1 for 2) = decode('aced', 'hex')";
+
+    private static final String selectAccessTokenSql = "/* codecMigration.selectAccessToken */ select auth_id, token, authentication\n" +
+            "from oauth.access_token\n" +
+            "where auth_id > ?\n" +
+            "  and (" + LEGACY_TOKEN + " or " + LEGACY_AUTHENTICATION + ")\n" +
+            "order by auth_id\n" +
+            "limit ?";
+    private static final String updateAccessTokenSql = "/* codecMigration.updateAccessToken */ update oauth.access_token\n" +
+            "set token = ?, authentication = ?\n" +
+            "where auth_id = ?\n" +
+            "  and token = ?\n" +
+            "  and authentication is not distinct from ?";
+    private static final String selectRefreshTokenSql = "/* codecMigration.selectRefreshToken */ select token_id, token, authentication\n" +
+            "from oauth.refresh_token\n" +
+            "where token_id > ?\n" +
+            "  and (" + LEGACY_TOKEN + " or " + LEGACY_AUTHENTICATION + ")\n" +
+            "order by token_id\n" +
+            "limit ?";
+    private static final String updateRefreshTokenSql = "/* codecMigration.updateRefreshToken */ update oauth.refresh_token\n" +
+            "set token = ?, authentication = ?\n" +
+            "where token_id = ?\n" +
+            "  and token is not distinct from ?\n" +
+            "  and authentication is not distinct from ?";
+    private static final String selectHistoryAccessTokenSql = "/* codecMigration.selectHistoryAccessToken */ select id, token\n" +
+            "from oauth.history_access_token\n" +
+            "where id > ?\n" +
+            "  and " + LEGACY_TOKEN + "\n" +
+            "order by id\n" +
+            "limit ?";
+    private static final String updateHistoryAccessTokenSql = "/* codecMigration.updateHistoryAccessToken */ update oauth.history_access_token\n" +
+            "set token = ?\n" +
+            "where id = ?\n" +
+            "  and token = ?";
+
+    private static final int[] TOKEN_AND_AUTHENTICATION_TYPES =
+            {Types.BINARY, Types.BINARY, Types.VARCHAR, Types.BINARY, Types.BINARY};
+    private static final int[] TOKEN_TYPES = {Types.BINARY, Types.VARCHAR, Types.BINARY};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TokenCodec tokenCodec;
+
+    @Value("${oauth.token-store.codec-migration.enabled:false}")
+    private boolean enabled;
+    @Value("${oauth.token-store.codec-migration.batch-size:500}")
+    private int batchSize;
+
+    private String lastAccessTokenKey = "";
+    private String lastRefreshTokenKey = "";
+    private String lastHistoryAccessTokenKey = "";
+
+    @Scheduled(
+            initialDelayString = "${oauth.token-store.codec-migration.initial-delay-ms:60000}",
+            fixedDelayString = "${oauth.token-store.codec-migration.fixed-delay-ms:10000}")
+    public void migrate() {
+        if (!this.enabled || this.tokenCodec instanceof JdkSerializationTokenCodec) {
+            return;
+        }
+
+        int accessTokens = this.migrateAccessToken();
+        int refreshTokens = this.migrateRefreshToken();
+        int histories = this.migrateHistoryAccessToken();
+        if (accessTokens + refreshTokens + histories > 0) {
+            log.info("token codec migration: {} access token, {} refresh token, {} history access token re-encoded",
+                    accessTokens, refreshTokens, histories);
+        }
+    }
+
+    private int migrateAccessToken() {
+        List<Map<String, Object>> rows = this.jdbcTemplate.queryForList(
+                selectAccessTokenSql, this.lastAccessTokenKey, this.batchSize);
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            String authId = (String) row.get("auth_id");
+            this.lastAccessTokenKey = authId;
+            byte[] token = (byte[]) row.get("token");
+            byte[] authentication = (byte[]) row.get("authentication");
+            try {
+                byte[] newToken = this.reencodeAccessToken(token);
+                byte[] newAuthentication = this.reencodeAuthentication(authentication);
+                if (!Arrays.equals(token, newToken) || !Arrays.equals(authentication, newAuthentication)) {
+                    updates.add(new Object[]{newToken, newAuthentication, authId, token, authentication});
+                }
+            } catch (IllegalArgumentException iae) {
+                log.warn("can't re-encode access token with auth_id {}", authId, iae);
+            }
+        }
+        if (rows.size() < this.batchSize) {
+            this.lastAccessTokenKey = "";
+        }
+        return this.update(updateAccessTokenSql, updates, TOKEN_AND_AUTHENTICATION_TYPES);
+    }
+
+    private int migrateRefreshToken() {
+        List<Map<String, Object>> rows = this.jdbcTemplate.queryForList(
+                selectRefreshTokenSql, this.lastRefreshTokenKey, this.batchSize);
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            String tokenId = (String) row.get("token_id");
+            this.lastRefreshTokenKey = tokenId;
+            byte[] token = (byte[]) row.get("token");
+            byte[] authentication = (byte[]) row.get("authentication");
+            try {
+                byte[] newToken = this.reencodeRefreshToken(token);
+                byte[] newAuthentication = this.reencodeAuthentication(authentication);
+                if (!Arrays.equals(token, newToken) || !Arrays.equals(authentication, newAuthentication)) {
+                    updates.add(new Object[]{newToken, newAuthentication, tokenId, token, authentication});
+                }
+            } catch (IllegalArgumentException iae) {
+                log.warn("can't re-encode refresh token with token_id {}", tokenId, iae);
+            }
+        }
+        if (rows.size() < this.batchSize) {
+            this.lastRefreshTokenKey = "";
+        }
+        return this.update(updateRefreshTokenSql, updates, TOKEN_AND_AUTHENTICATION_TYPES);
+    }
+
+    private int migrateHistoryAccessToken() {
+        List<Map<String, Object>> rows = this.jdbcTemplate.queryForList(
+                selectHistoryAccessTokenSql, this.lastHistoryAccessTokenKey, this.batchSize);
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            String id = (String) row.get("id");
+            this.lastHistoryAccessTokenKey = id;
+            byte[] token = (byte[]) row.get("token");
+            try {
+                byte[] newToken = this.reencodeAccessToken(token);
+                if (!Arrays.equals(token, newToken)) {
+                    updates.add(new Object[]{newToken, id, token});
+                }
+            } catch (IllegalArgumentException iae) {
+                log.warn("can't re-encode history access token with id {}", id, iae);
+            }
+        }
+        if (rows.size() < this.batchSize) {
+            this.lastHistoryAccessTokenKey = "";
+        }
+        return this.update(updateHistoryAccessTokenSql, updates, TOKEN_TYPES);
+    }
+
+    private int update(String sql, List<Object[]> updates, int[] types) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+
+        int updated = 0;
+        for (int count : this.jdbcTemplate.batchUpdate(sql, updates, types)) {
+            updated += Math.max(count, 0);
+        }
+        return updated;
+    }
+
+    private byte[] reencodeAccessToken(byte[] bytes) {
+        if (!JdkSerializationTokenCodec.isJdkSerialized(bytes)) {
+            return bytes;
+        }
+        return this.tokenCodec.encodeAccessToken(this.tokenCodec.decodeAccessToken(bytes));
+    }
+
+    private byte[] reencodeRefreshToken(byte[] bytes) {
+        if (!JdkSerializationTokenCodec.isJdkSerialized(bytes)) {
+            return bytes;
+        }
+        return this.tokenCodec.encodeRefreshToken(this.tokenCodec.decodeRefreshToken(bytes));
+    }
+
+    private byte[] reencodeAuthentication(byte[] bytes) {
+        if (!JdkSerializationTokenCodec.isJdkSerialized(bytes)) {
+            return bytes;
+        }
+        return this.tokenCodec.encodeAuthentication(this.tokenCodec.decodeAuthentication(bytes));
+    }
+}
@@ -0,0 +1,64 @@
+package com.tabeldata.oauth.endpoint;
+
+import com.tabeldata.oauth.JwtAccessTokenCustomConverter;
+import com.tabeldata.oauth.JwtSigningKeyStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpoint;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * public keys of jwt signature as JWKS (RFC 7517), so resource server can verify token offline.
+ * Symmetric key is never published, the key set is empty when no keystore configured.
+ * <p>
+ * {@code /oauth/token_key} is also the spring {@code TokenKeyEndpoint} ({@code {"alg", "value"}} of the verifier key),
+ * the key set is answered there when client accept {@code application/jwk-set+json}, otherwise spring endpoint
+ * answer as before. {@code /oauth/token_keys} always answer the key set.
+ */
+@FrameworkEndpoint
+public class JwksEndpoint {
+
+    private static final String EMPTY_JWKS = "{\"keys\":[]}";
+    private static final String JWK_SET_JSON_VALUE = "application/jwk-set+json";
+
+    @Autowired
+    private JwtAccessTokenCustomConverter accessTokenConverter;
+
+    @Value("${oauth.jwt.jwks.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    @ResponseBody
+    @GetMapping(value = "/oauth/token_key", produces = JWK_SET_JSON_VALUE)
+    public ResponseEntity<String> tokenKey(WebRequest request) {
+        return tokenKeys(request);
+    }
+
+    @ResponseBody
+    @GetMapping(value = "/oauth/token_keys", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<String> tokenKeys(WebRequest request) {
+        JwtSigningKeyStore signingKeys = accessTokenConverter.getSigningKeys();
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        if (signingKeys == null) {
+            return ResponseEntity.ok().cacheControl(cacheControl).body(EMPTY_JWKS);
+        }
+
+        if (request.checkNotModified(signingKeys.getJwksETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(signingKeys.getJwksETag())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(signingKeys.getJwksETag())
+                .body(signingKeys.getJwks());
+    }
+}
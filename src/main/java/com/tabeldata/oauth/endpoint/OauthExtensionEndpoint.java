@@ -2,19 +2,29 @@ package com.tabeldata.oauth.endpoint;
 
 import com.maryanto.dimas.plugins.web.commons.ui.datatables.DataTablesRequest;
 import com.maryanto.dimas.plugins.web.commons.ui.datatables.DataTablesResponse;
+import com.tabeldata.oauth.models.KeysetPage;
 import com.tabeldata.oauth.models.OauthAccessTokenExtended;
 import com.tabeldata.oauth.models.OauthAccessTokenHistory;
+import com.tabeldata.oauth.repository.HistoryAccessTokenExport;
 import com.tabeldata.oauth.repository.JdbcTokenStoreCustomizer;
 import com.tabeldata.oauth.service.DefaultTokenService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpoint;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.Map;
 
+import static org.springframework.http.ResponseEntity.badRequest;
 import static org.springframework.http.ResponseEntity.noContent;
 import static org.springframework.http.ResponseEntity.ok;
 
@@ -23,10 +33,14 @@ import static org.springframework.http.ResponseEntity.ok;
 @Slf4j
 public class OauthExtensionEndpoint {
 
+    private static final int MAX_PAGE_LENGTH = 1000;
+
     @Autowired
     private DefaultTokenService tokenServices;
     @Autowired
     private JdbcTokenStoreCustomizer tokenStore;
+    @Autowired
+    private HistoryAccessTokenExport historyExport;
 
     @ResponseBody
     @PostMapping("/revoke")
@@ -133,4 +147,91 @@ public class OauthExtensionEndpoint {
         );
     }
 
+    /**
+     * keyset paging of current access token, {@code cursor} is {@code next} of previous page.
+     * {@code total} is an estimate unless {@code exactTotal=true}
+     */
+    @PostMapping("/token/current/page")
+    @ResponseBody
+    public ResponseEntity<KeysetPage<OauthAccessTokenExtended>> currentTokenPage(
+            @RequestParam(required = false, value = "cursor") String cursor,
+            @RequestParam(required = false, value = "length", defaultValue = "10") Integer length,
+            @RequestParam(required = false, value = "order", defaultValue = "desc") String order,
+            @RequestParam(required = false, value = "exactTotal", defaultValue = "false") boolean exactTotal,
+            @RequestBody(required = false) OauthAccessTokenExtended oauth) {
+        if (oauth == null) oauth = new OauthAccessTokenExtended();
+        if (length < 1 || length > MAX_PAGE_LENGTH) {
+            return badRequest().build();
+        }
+
+        try {
+            return ok(tokenServices.currentTokenPage(oauth, cursor, length, "asc".equalsIgnoreCase(order), exactTotal));
+        } catch (IllegalArgumentException iae) {
+            log.info("invalid cursor {}", cursor);
+            return badRequest().build();
+        }
+    }
+
+    /**
+     * keyset paging of access token history, optionally of one user and/or one client
+     */
+    @PostMapping("/token/history/page")
+    @ResponseBody
+    public ResponseEntity<KeysetPage<OauthAccessTokenHistory>> historyPage(
+            @RequestParam(required = false, value = "userName") String username,
+            @RequestParam(required = false, value = "clientId") String clientId,
+            @RequestParam(required = false, value = "cursor") String cursor,
+            @RequestParam(required = false, value = "length", defaultValue = "10") Integer length,
+            @RequestParam(required = false, value = "order", defaultValue = "desc") String order,
+            @RequestParam(required = false, value = "exactTotal", defaultValue = "false") boolean exactTotal,
+            @RequestBody(required = false) OauthAccessTokenHistory oauth) {
+        if (oauth == null) oauth = new OauthAccessTokenHistory();
+        if (length < 1 || length > MAX_PAGE_LENGTH) {
+            return badRequest().build();
+        }
+
+        try {
+            return ok(tokenServices.historyPage(
+                    username, clientId, oauth, cursor, length, "asc".equalsIgnoreCase(order), exactTotal));
+        } catch (IllegalArgumentException iae) {
+            log.info("invalid cursor {}", cursor);
+            return badRequest().build();
+        }
+    }
+
+    /**
+     * stream access token history as {@code csv} or {@code ndjson}, ordered by login time.
+     * {@code from} and {@code to} are ISO local date time of login, {@code to} is exclusive
+     */
+    @GetMapping("/token/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(required = false, value = "format", defaultValue = "csv") String format,
+            @RequestParam(required = false, value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false, value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false, value = "userName") String username,
+            @RequestParam(required = false, value = "clientId") String clientId,
+            @RequestParam(required = false, value = "includeToken", defaultValue = "false") boolean includeToken) {
+        HistoryAccessTokenExport.Format exportFormat;
+        try {
+            exportFormat = HistoryAccessTokenExport.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            return badRequest().build();
+        }
+
+        Timestamp fromTimestamp = from != null ? Timestamp.valueOf(from) : null;
+        Timestamp toTimestamp = to != null ? Timestamp.valueOf(to) : null;
+        StreamingResponseBody body = output -> {
+            long rows = historyExport.export(
+                    exportFormat, fromTimestamp, toTimestamp, username, clientId, includeToken, output);
+            log.info("history exported as {}: {} rows, from: {}, to: {}, user: {}, client: {}",
+                    exportFormat, rows, from, to, username, clientId);
+        };
+
+        boolean csv = exportFormat == HistoryAccessTokenExport.Format.CSV;
+        return ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"history-access-token." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
 }
@@ -0,0 +1,27 @@
+package com.tabeldata.oauth.endpoint;
+
+import com.tabeldata.auth.service.PasswordEncoderBusyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
+
+/**
+ * default oauth2 error response, plus {@code Retry-After} when password encoder is busy
+ */
+public class OauthWebResponseExceptionTranslator extends DefaultWebResponseExceptionTranslator {
+
+    @Override
+    public ResponseEntity<OAuth2Exception> translate(Exception e) throws Exception {
+        ResponseEntity<OAuth2Exception> response = super.translate(e);
+        PasswordEncoderBusyException busy = PasswordEncoderBusyException.find(e);
+        if (busy == null) {
+            return response;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()));
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+}
@@ -0,0 +1,24 @@
+package com.tabeldata.oauth.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class KeysetPage<T> {
+
+    private List<T> data;
+    /**
+     * cursor of the next page, null on the last page
+     */
+    private String next;
+    private Long total;
+    /**
+     * false when {@link #total} is the planner estimate
+     */
+    private boolean exactTotal;
+}
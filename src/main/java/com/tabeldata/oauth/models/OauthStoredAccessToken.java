@@ -0,0 +1,16 @@
+package com.tabeldata.oauth.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OauthStoredAccessToken {
+
+    private OAuth2AccessToken accessToken;
+    private OAuth2Authentication authentication;
+}
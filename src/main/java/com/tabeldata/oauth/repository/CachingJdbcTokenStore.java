@@ -0,0 +1,246 @@
+package com.tabeldata.oauth.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.tabeldata.oauth.models.OauthStoredAccessToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link JdbcTokenStoreCustomizer} with in-process cache of deserialized access token and authentication,
+ * keyed by token key (same as {@code oauth.access_token.token_id}).
+ * <p>
+ * Entry is dropped when the token itself expired, or after {@code maxTimeToLiveSeconds} so token removed by
+ * another node is not valid here for longer than that. Store and remove on this node invalidate the entry immediately.
+ * <p>
+ * Store and remove bump a generation (striped by key) before and after the database write, read put what it loaded
+ * into the cache and drop it again when the generation moved meanwhile, so token removed while it was being read
+ * is never cached back. Remove by refresh token bump a global generation, the access token key isn't known there.
+ */
+public class CachingJdbcTokenStore extends JdbcTokenStoreCustomizer {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<String, CachedAccessToken> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong refreshTokenGeneration = new AtomicLong();
+    /**
+     * refresh token value to key of cached access token, maintained with the cache
+     */
+    private final ConcurrentMap<String, String> keyByRefreshToken = new ConcurrentHashMap<>();
+
+    public CachingJdbcTokenStore(DataSource dataSource, long maximumSize, long maxTimeToLiveSeconds) {
+        super(dataSource);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxTimeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .removalListener((RemovalListener<String, CachedAccessToken>) notification -> {
+                    // replaced entry is the same token, so the same refresh token
+                    if (notification.getCause() == RemovalCause.REPLACED) {
+                        return;
+                    }
+                    String refreshToken = refreshTokenOf(notification.getValue());
+                    if (refreshToken != null) {
+                        this.keyByRefreshToken.remove(refreshToken, notification.getKey());
+                    }
+                })
+                .build();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, this.cache, "oauth.token-store");
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        String key = this.extractTokenKey(tokenValue);
+        CachedAccessToken cached = this.getIfValid(key);
+        if (cached != null) {
+            return cached.token;
+        }
+
+        Generation generation = this.generation(key);
+        OAuth2AccessToken accessToken = super.readAccessToken(tokenValue);
+        if (accessToken != null && !accessToken.isExpired()) {
+            this.putIfCurrent(key, new CachedAccessToken(accessToken, null), generation);
+        }
+        return accessToken;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        String key = this.extractTokenKey(token);
+        CachedAccessToken cached = this.getIfValid(key);
+        if (cached != null && cached.authentication != null) {
+            return copyOf(cached.authentication);
+        }
+
+        Generation generation = this.generation(key);
+        OAuth2Authentication authentication = super.readAuthentication(token);
+        if (authentication != null && cached != null) {
+            this.putIfCurrent(key, new CachedAccessToken(cached.token, authentication), generation);
+            return copyOf(authentication);
+        }
+        return authentication;
+    }
+
+    @Override
+    public OauthStoredAccessToken readAccessTokenWithAuthentication(String tokenValue) {
+        String key = this.extractTokenKey(tokenValue);
+        CachedAccessToken cached = this.getIfValid(key);
+        if (cached != null && cached.authentication != null) {
+            return new OauthStoredAccessToken(cached.token, copyOf(cached.authentication));
+        }
+
+        Generation generation = this.generation(key);
+        OauthStoredAccessToken stored = super.readAccessTokenWithAuthentication(tokenValue);
+        if (stored == null || stored.getAuthentication() == null) {
+            return stored;
+        }
+
+        if (!stored.getAccessToken().isExpired()) {
+            this.putIfCurrent(key, new CachedAccessToken(stored.getAccessToken(), stored.getAuthentication()), generation);
+        }
+        return new OauthStoredAccessToken(stored.getAccessToken(), copyOf(stored.getAuthentication()));
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        String key = this.extractTokenKey(token.getValue());
+        this.invalidate(key);
+        super.storeAccessToken(token, authentication);
+        this.invalidate(key);
+    }
+
+    @Override
+    public void removeAccessToken(String tokenValue) {
+        String key = this.extractTokenKey(tokenValue);
+        this.invalidate(key);
+        super.removeAccessToken(tokenValue);
+        this.invalidate(key);
+    }
+
+    @Override
+    public void removeAccessToken(String tokenValue, String username) {
+        String key = this.extractTokenKey(tokenValue);
+        this.invalidate(key);
+        super.removeAccessToken(tokenValue, username);
+        this.invalidate(key);
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(String refreshToken) {
+        this.invalidateByRefreshToken(refreshToken);
+        super.removeAccessTokenUsingRefreshToken(refreshToken);
+        this.invalidateByRefreshToken(refreshToken);
+    }
+
+    public void evictAll() {
+        this.cache.invalidateAll();
+    }
+
+    private Generation generation(String key) {
+        return new Generation(this.generations.get(stripe(key)), this.refreshTokenGeneration.get());
+    }
+
+    /**
+     * put, then drop it again when remove happened since {@code generation} was taken. Remove bump the generation
+     * before its last invalidate, so either that invalidate see this entry or this check see the new generation
+     */
+    private void putIfCurrent(String key, CachedAccessToken value, Generation generation) {
+        this.cache.put(key, value);
+        String refreshToken = refreshTokenOf(value);
+        if (refreshToken != null) {
+            this.keyByRefreshToken.put(refreshToken, key);
+        }
+        if (!generation.equals(this.generation(key))) {
+            this.cache.invalidate(key);
+        }
+    }
+
+    private void invalidate(String key) {
+        this.generations.incrementAndGet(stripe(key));
+        this.cache.invalidate(key);
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private static String refreshTokenOf(CachedAccessToken cached) {
+        return cached != null && cached.token.getRefreshToken() != null ? cached.token.getRefreshToken().getValue() : null;
+    }
+
+    private CachedAccessToken getIfValid(String key) {
+        CachedAccessToken cached = this.cache.getIfPresent(key);
+        if (cached != null && cached.token.isExpired()) {
+            this.cache.invalidate(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private void invalidateByRefreshToken(String refreshToken) {
+        this.refreshTokenGeneration.incrementAndGet();
+        String key = this.keyByRefreshToken.remove(refreshToken);
+        if (key != null) {
+            this.invalidate(key);
+        }
+    }
+
+    /**
+     * resource server set request details into authentication, so every caller get their own instance
+     */
+    private static OAuth2Authentication copyOf(OAuth2Authentication authentication) {
+        OAuth2Authentication copy = new OAuth2Authentication(
+                authentication.getOAuth2Request(), authentication.getUserAuthentication());
+        copy.setDetails(authentication.getDetails());
+        return copy;
+    }
+
+    private static final class Generation {
+        private final long key;
+        private final long refreshToken;
+
+        private Generation(long key, long refreshToken) {
+            this.key = key;
+            this.refreshToken = refreshToken;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Generation)) {
+                return false;
+            }
+            Generation other = (Generation) o;
+            return this.key == other.key && this.refreshToken == other.refreshToken;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.key) * 31 + Long.hashCode(this.refreshToken);
+        }
+    }
+
+    private static final class CachedAccessToken {
+        private final OAuth2AccessToken token;
+        private final OAuth2Authentication authentication;
+
+        private CachedAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+            this.token = token;
+            this.authentication = authentication;
+        }
+    }
+}
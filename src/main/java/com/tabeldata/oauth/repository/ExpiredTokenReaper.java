@@ -0,0 +1,270 @@
+package com.tabeldata.oauth.repository;
+
+import com.tabeldata.oauth.codec.TokenCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * delete expired access token, refresh token and revoked jwt id in background, in small chunks.
+ * <p>
+ * Only one node of the cluster run it, guarded by postgres advisory lock held on the connection of the run.
+ * Every chunk is its own short transaction, row locked by other transaction is skipped and taken next run,
+ * and the reaper pause between chunks so it doesn't compete with token requests.
+ */
+@Slf4j
+@Component
+public class ExpiredTokenReaper {
+
+    /**
+     * advisory lock key, "oauthrp" in ascii
+     */
+    private static final long ADVISORY_LOCK_KEY = 0x6f61757468727050L;
+
+    private static final String deleteExpiredAccessTokenSql = "/* reaper.deleteExpiredAccessToken */ with deleted as (\n" +
+            "  delete\n" +
+            "  from oauth.access_token\n" +
+            "  where ctid = any (array(\n" +
+            "      select ctid\n" +
+            "      from oauth.access_token\n" +
+            "      where expires_at < localtimestamp\n" +
+            "      limit ?\n" +
+            "      for update skip locked\n" +
+            "  ))\n" +
+            "  returning token_id\n" +
+            "), history as (\n" +
+            "  update oauth.history_access_token\n" +
+            "  set is_logout = true,\n" +
+            "      logout_at = now(),\n" +
+            "      logout_by = 'timeout'\n" +
+            "  where access_id in (select token_id from deleted)\n" +
+            "    and is_logout = false\n" +
+            "  returning id\n" +
+            ")\n" +
+            "select (select count(*) from deleted) as tokens,\n" +
+            "       (select count(*) from history) as histories";
+    private static final String selectRefreshTokenSql = "/* reaper.selectRefreshToken */ select token_id, token\n" +
+            "from oauth.refresh_token\n" +
+            "where token_id > ?\n" +
+            "order by token_id\n" +
+            "limit ?";
+    private static final String deleteRefreshTokenSql = "/* reaper.deleteRefreshToken */ delete\n" +
+            "from oauth.refresh_token\n" +
+            "where token_id = any (?)";
+    private static final String deleteRevokedAccessTokenSql = "/* reaper.deleteRevokedAccessToken */ delete\n" +
+            "from oauth.revoked_access_token\n" +
+            "where ctid = any (array(\n" +
+            "    select ctid\n" +
+            "    from oauth.revoked_access_token\n" +
+            "    where expires_at < now()\n" +
+            "    limit ?\n" +
+            "    for update skip locked\n" +
+            "))";
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private TokenCodec tokenCodec;
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${oauth.token-store.reaper.enabled:true}")
+    private boolean enabled;
+    @Value("${oauth.token-store.reaper.chunk-size:500}")
+    private int chunkSize;
+    @Value("${oauth.token-store.reaper.max-chunks-per-run:200}")
+    private int maxChunksPerRun;
+    @Value("${oauth.token-store.reaper.pause-ms:100}")
+    private long pauseMillis;
+
+    private Counter accessTokenReaped;
+    private Counter historyReaped;
+    private Counter refreshTokenReaped;
+    private Counter revokedAccessTokenReaped;
+    private Timer runTimer;
+
+    /**
+     * last refresh token_id walked, next run continue after it so a large table is covered across runs
+     */
+    private String refreshTokenCursor = "";
+
+    @PostConstruct
+    public void bindMetrics() {
+        if (this.meterRegistry == null) {
+            return;
+        }
+
+        this.accessTokenReaped = this.reapedCounter("access_token");
+        this.historyReaped = this.reapedCounter("history_access_token");
+        this.refreshTokenReaped = this.reapedCounter("refresh_token");
+        this.revokedAccessTokenReaped = this.reapedCounter("revoked_access_token");
+        this.runTimer = Timer.builder("oauth.reaper.run")
+                .description("duration of one expired token reaper run")
+                .register(this.meterRegistry);
+    }
+
+    private Counter reapedCounter(String table) {
+        return Counter.builder("oauth.reaper.rows")
+                .description("rows deleted (or history marked as timeout) by expired token reaper")
+                .tag("table", table)
+                .register(this.meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${oauth.token-store.reaper.initial-delay-ms:60000}",
+            fixedDelayString = "${oauth.token-store.reaper.fixed-delay-ms:60000}")
+    public void reap() {
+        if (!this.enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Connection connection = DataSourceUtils.getConnection(this.dataSource);
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            Boolean locked = jdbcTemplate.queryForObject("/* reaper.lock */ select pg_try_advisory_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.debug("expired token reaper is running on another node");
+                return;
+            }
+
+            try {
+                int accessTokens = this.reapAccessToken(jdbcTemplate);
+                int refreshTokens = this.reapRefreshToken(jdbcTemplate);
+                int revokedAccessTokens = this.reapRevokedAccessToken(jdbcTemplate);
+                if (accessTokens + refreshTokens + revokedAccessTokens > 0) {
+                    log.info("expired token reaper: {} access token, {} refresh token, {} revoked access token deleted in {} ms",
+                            accessTokens, refreshTokens, revokedAccessTokens,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            } finally {
+                jdbcTemplate.queryForObject("/* reaper.unlock */ select pg_advisory_unlock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+            }
+        } catch (DataAccessException dae) {
+            log.warn("expired token reaper failed, retry on next run", dae);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            DataSourceUtils.releaseConnection(connection, this.dataSource);
+            if (this.runTimer != null) {
+                this.runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private int reapAccessToken(JdbcTemplate jdbcTemplate) throws InterruptedException {
+        int total = 0;
+        for (int chunk = 0; chunk < this.maxChunksPerRun; chunk++) {
+            Map<String, Object> result = jdbcTemplate.queryForMap(deleteExpiredAccessTokenSql, this.chunkSize);
+            int tokens = ((Number) result.get("tokens")).intValue();
+            int histories = ((Number) result.get("histories")).intValue();
+            increment(this.accessTokenReaped, tokens);
+            increment(this.historyReaped, histories);
+            total += tokens;
+            if (tokens < this.chunkSize) {
+                break;
+            }
+            this.pause();
+        }
+        return total;
+    }
+
+    /**
+     * expiration of refresh token only exist inside the serialized token, walk the table by key and decode it.
+     * The walk resume from {@link #refreshTokenCursor} and wrap to the beginning when it reach the end of table.
+     */
+    private int reapRefreshToken(JdbcTemplate jdbcTemplate) throws InterruptedException {
+        int total = 0;
+        long now = System.currentTimeMillis();
+        for (int chunk = 0; chunk < this.maxChunksPerRun; chunk++) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(selectRefreshTokenSql, this.refreshTokenCursor, this.chunkSize);
+            List<String> expired = new ArrayList<>();
+            String lastTokenId = this.refreshTokenCursor;
+            for (Map<String, Object> row : rows) {
+                lastTokenId = (String) row.get("token_id");
+                if (this.isExpired((byte[]) row.get("token"), now)) {
+                    expired.add(lastTokenId);
+                }
+            }
+
+            if (!expired.isEmpty()) {
+                int deleted = jdbcTemplate.update(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(deleteRefreshTokenSql);
+                    statement.setArray(1, connection.createArrayOf("varchar", expired.toArray()));
+                    return statement;
+                });
+                increment(this.refreshTokenReaped, deleted);
+                total += deleted;
+            }
+            if (rows.size() < this.chunkSize) {
+                this.refreshTokenCursor = "";
+                break;
+            }
+            this.refreshTokenCursor = lastTokenId;
+            this.pause();
+        }
+        return total;
+    }
+
+    private boolean isExpired(byte[] bytes, long now) {
+        if (bytes == null) {
+            return false;
+        }
+
+        try {
+            OAuth2RefreshToken refreshToken = this.tokenCodec.decodeRefreshToken(bytes);
+            return refreshToken instanceof ExpiringOAuth2RefreshToken
+                    && ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration() != null
+                    && ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration().getTime() < now;
+        } catch (IllegalArgumentException iae) {
+            log.warn("can't decode refresh token, skip it", iae);
+            return false;
+        }
+    }
+
+    private int reapRevokedAccessToken(JdbcTemplate jdbcTemplate) throws InterruptedException {
+        int total = 0;
+        for (int chunk = 0; chunk < this.maxChunksPerRun; chunk++) {
+            int deleted = jdbcTemplate.update(deleteRevokedAccessTokenSql, this.chunkSize);
+            increment(this.revokedAccessTokenReaped, deleted);
+            total += deleted;
+            if (deleted < this.chunkSize) {
+                break;
+            }
+            this.pause();
+        }
+        return total;
+    }
+
+    private void pause() throws InterruptedException {
+        if (this.pauseMillis > 0) {
+            Thread.sleep(this.pauseMillis);
+        }
+    }
+
+    private static void increment(Counter counter, int amount) {
+        if (counter != null && amount > 0) {
+            counter.increment(amount);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.tabeldata.oauth.repository;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tabeldata.oauth.codec.TokenCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * write {@code oauth.history_access_token} rows straight to output stream as CSV or NDJSON.
+ * <p>
+ * Rows are read by forward-only cursor of postgres (fetch size inside read-only transaction),
+ * so memory used doesn't depend on how many rows exported. Token column is decoded only when asked.
+ */
+@Slf4j
+@Repository
+public class HistoryAccessTokenExport {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String[] COLUMNS = {
+            "id", "access_id", "client_id", "user_name", "ip_address",
+            "login_at", "expires_at", "is_logout", "logout_at", "logout_by"};
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private TokenCodec tokenCodec;
+
+    @Value("${oauth.token-store.history.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+        jdbcTemplate.setFetchSize(this.fetchSize);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * @param from         login at or after, null for no lower bound
+     * @param to           login before, null for no upper bound
+     * @param username     exact user name, null for every user
+     * @param clientId     exact client id, null for every client
+     * @param includeToken also write decoded access token value as column {@code access_token}
+     * @return rows written
+     */
+    @Transactional(readOnly = true)
+    public long export(
+            Format format, Timestamp from, Timestamp to, String username, String clientId, boolean includeToken,
+            OutputStream output) throws IOException {
+        MapSqlParameterSource map = new MapSqlParameterSource();
+        StringBuilder sb = new StringBuilder("/* history.export */ select ")
+                .append(String.join(", ", COLUMNS))
+                .append(includeToken ? ", token\n" : "\n")
+                .append("from oauth.history_access_token\n" +
+                        "where 1 = 1 ");
+        if (from != null) {
+            sb.append(" and login_at >= :from ");
+            map.addValue("from", from);
+        }
+        if (to != null) {
+            sb.append(" and login_at < :to ");
+            map.addValue("to", to);
+        }
+        if (StringUtils.isNotBlank(username)) {
+            sb.append(" and user_name = :userName ");
+            map.addValue("userName", username);
+        }
+        if (StringUtils.isNotBlank(clientId)) {
+            sb.append(" and client_id = :clientId ");
+            map.addValue("clientId", clientId);
+        }
+        sb.append(" order by login_at, id");
+
+        RowWriter writer = format == Format.NDJSON ? new NdjsonRowWriter(output) : new CsvRowWriter(output);
+        long[] rows = new long[1];
+        try {
+            writer.header(includeToken);
+            this.namedJdbcTemplate.query(sb.toString(), map, resultSet -> {
+                try {
+                    writer.row(resultSet, includeToken ? this.tokenValue(resultSet.getBytes("token")) : null, includeToken);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    private String tokenValue(byte[] token) {
+        try {
+            return this.tokenCodec.decodeAccessTokenValue(token);
+        } catch (IllegalArgumentException iae) {
+            log.warn("can't decode history access token", iae);
+            return null;
+        }
+    }
+
+    private interface RowWriter {
+
+        void header(boolean includeToken) throws IOException;
+
+        void row(ResultSet resultSet, String token, boolean includeToken) throws IOException, SQLException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * RFC 4180, field with separator, quote or line break is quoted
+     */
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream output) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 16 * 1024);
+        }
+
+        @Override
+        public void header(boolean includeToken) throws IOException {
+            this.writer.write(String.join(",", COLUMNS));
+            if (includeToken) {
+                this.writer.write(",access_token");
+            }
+            this.writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet resultSet, String token, boolean includeToken) throws IOException, SQLException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    this.writer.write(',');
+                }
+                this.field(resultSet.getString(COLUMNS[i]));
+            }
+            if (includeToken) {
+                this.writer.write(',');
+                this.field(token);
+            }
+            this.writer.write("\r\n");
+        }
+
+        private void field(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (StringUtils.containsAny(value, ',', '"', '\r', '\n')) {
+                this.writer.write('"');
+                this.writer.write(value.replace("\"", "\"\""));
+                this.writer.write('"');
+            } else {
+                this.writer.write(value);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.writer.flush();
+        }
+    }
+
+    /**
+     * one json object per line, timestamp as ISO-8601 string
+     */
+    private static final class NdjsonRowWriter implements RowWriter {
+        private static final JsonFactory JSON = new JsonFactory();
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(OutputStream output) throws IOException {
+            this.generator = JSON.createGenerator(new BufferedOutputStream(output, 16 * 1024), JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void header(boolean includeToken) {
+        }
+
+        @Override
+        public void row(ResultSet resultSet, String token, boolean includeToken) throws IOException, SQLException {
+            this.generator.writeStartObject();
+            this.generator.writeStringField("id", resultSet.getString("id"));
+            this.generator.writeStringField("access_id", resultSet.getString("access_id"));
+            this.generator.writeStringField("client_id", resultSet.getString("client_id"));
+            this.generator.writeStringField("user_name", resultSet.getString("user_name"));
+            this.generator.writeStringField("ip_address", resultSet.getString("ip_address"));
+            this.timestamp("login_at", resultSet.getTimestamp("login_at"));
+            this.timestamp("expires_at", resultSet.getTimestamp("expires_at"));
+            this.generator.writeBooleanField("is_logout", resultSet.getBoolean("is_logout"));
+            this.timestamp("logout_at", resultSet.getTimestamp("logout_at"));
+            this.generator.writeStringField("logout_by", resultSet.getString("logout_by"));
+            if (includeToken) {
+                this.generator.writeStringField("access_token", token);
+            }
+            this.generator.writeEndObject();
+            this.generator.writeRaw('\n');
+        }
+
+        private void timestamp(String field, Timestamp value) throws IOException {
+            if (value == null) {
+                this.generator.writeNullField(field);
+            } else {
+                this.generator.writeStringField(field, value.toLocalDateTime().toString());
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.generator.flush();
+        }
+    }
+}
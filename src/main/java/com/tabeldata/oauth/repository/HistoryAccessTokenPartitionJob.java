@@ -0,0 +1,37 @@
+package com.tabeldata.oauth.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * create monthly partition of {@code oauth.history_access_token} ahead of time, so insert trigger doesn't have to.
+ */
+@Slf4j
+@Component
+public class HistoryAccessTokenPartitionJob {
+
+    private static final String createPartitionsSql = "/* history.createPartitions */ select oauth.create_history_access_token_partitions(?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${oauth.token-store.history.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    @Scheduled(
+            initialDelayString = "${oauth.token-store.history.partition.initial-delay-ms:30000}",
+            fixedDelayString = "${oauth.token-store.history.partition.fixed-delay-ms:86400000}")
+    public void createPartitions() {
+        try {
+            Integer partitions = this.jdbcTemplate.queryForObject(createPartitionsSql, Integer.class, this.monthsAhead);
+            log.debug("history access token partition ensured for {} months", partitions);
+        } catch (DataAccessException dae) {
+            log.warn("can't create history access token partition", dae);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.tabeldata.oauth.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * write {@code oauth.history_access_token} in background, by jdbc batch.
+ * <p>
+ * Event is queued after the caller transaction committed (or immediately without transaction), with the time
+ * it happened, and written in the same order: consecutive login or logout events are one batch.
+ * When the queue is full, {@link OverflowPolicy#BLOCK} wait for space and {@link OverflowPolicy#DROP} discard the event.
+ * {@link #close()} write everything still in the queue, event after that is written on the caller thread, still in order.
+ * Batch failed twice is written row by row, so only the offending row is lost.
+ */
+@Slf4j
+public class HistoryAccessTokenWriter implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        BLOCK, DROP
+    }
+
+    private static final String insertHistoryAccessTokenSql = "/* history.insertHistoryAccessToken */ insert into oauth.history_access_token (id, access_id, client_id, token, ip_address, user_name, login_at, expires_at, is_logout, logout_at, logout_by)\n" +
+            "VALUES (uuid_generate_v4(), ?, ?, ?, ?, ?, ?, ?, false, null, null)";
+    private static final String updateHistoryAccessTokenSql = "/* history.updateHistoryAccessToken */ update oauth.history_access_token\n" +
+            "set is_logout = true,\n" +
+            "    logout_at = ?,\n" +
+            "    logout_by = ?\n" +
+            "where access_id = ?\n" +
+            "  and is_logout = false";
+    private static final int[] insertTypes = {Types.VARCHAR, Types.VARCHAR, Types.BINARY, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP};
+    private static final int[] updateTypes = {Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR};
+
+    private static final HistoryEvent SHUTDOWN = new HistoryEvent(false, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<HistoryEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread worker;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * worker stopped and queue written by {@link #close()}, from now event is written directly under {@link #directWriteLock}
+     */
+    private volatile boolean drained = false;
+    private final Object directWriteLock = new Object();
+    private Timer flushTimer;
+
+    public HistoryAccessTokenWriter(
+            DataSource dataSource, int queueCapacity, int batchSize, long flushIntervalMillis, OverflowPolicy overflowPolicy) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.worker = new Thread(this::run, "history-access-token-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("oauth.history.queue.size", this.queue, BlockingQueue::size)
+                .description("history access token events waiting to be written")
+                .register(registry);
+        Gauge.builder("oauth.history.dropped", this.dropped, AtomicLong::get)
+                .description("history access token events dropped because queue is full")
+                .register(registry);
+        Gauge.builder("oauth.history.failed", this.failed, AtomicLong::get)
+                .description("history access token events failed to be written")
+                .register(registry);
+        this.flushTimer = Timer.builder("oauth.history.flush")
+                .description("latency of one batch write of history access token")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    public void login(String tokenId, String clientId, byte[] token, String ipAddress, String username, Timestamp expiresAt) {
+        this.enqueue(new HistoryEvent(true, new Object[]{
+                tokenId, clientId, token, ipAddress, username, new Timestamp(System.currentTimeMillis()), expiresAt}));
+    }
+
+    public void logout(String tokenId, String logoutBy) {
+        this.enqueue(new HistoryEvent(false, new Object[]{
+                new Timestamp(System.currentTimeMillis()), logoutBy, tokenId}));
+    }
+
+    public int size() {
+        return this.queue.size();
+    }
+
+    private void enqueue(HistoryEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    offer(event);
+                }
+            });
+        } else {
+            this.offer(event);
+        }
+    }
+
+    private void offer(HistoryEvent event) {
+        if (this.drained) {
+            synchronized (this.directWriteLock) {
+                this.writeRemaining();
+                this.write(Collections.singletonList(event));
+            }
+            return;
+        }
+
+        if (this.overflowPolicy == OverflowPolicy.DROP) {
+            if (!this.queue.offer(event)) {
+                long count = this.dropped.incrementAndGet();
+                if (count % 1000 == 1) {
+                    log.warn("history access token queue is full, {} events dropped so far", count);
+                }
+            }
+        } else {
+            try {
+                this.queue.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.dropped.incrementAndGet();
+            }
+        }
+
+        // queued while close() was writing the rest, nobody else will take it
+        if (this.drained) {
+            synchronized (this.directWriteLock) {
+                this.writeRemaining();
+            }
+        }
+    }
+
+    private void writeRemaining() {
+        List<HistoryEvent> remaining = new ArrayList<>();
+        this.queue.drainTo(remaining);
+        remaining.remove(SHUTDOWN);
+        this.write(remaining);
+    }
+
+    private void run() {
+        List<HistoryEvent> batch = new ArrayList<>(this.batchSize);
+        boolean running = true;
+        while (running) {
+            try {
+                HistoryEvent first = this.queue.take();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.flushIntervalMillis);
+                batch.add(first);
+                while (batch.size() < this.batchSize) {
+                    this.queue.drainTo(batch, this.batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= this.batchSize || remaining <= 0 || batch.contains(SHUTDOWN)) {
+                        break;
+                    }
+                    HistoryEvent next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            if (batch.remove(SHUTDOWN)) {
+                running = false;
+            }
+            this.writeOnWorker(batch);
+            batch.clear();
+        }
+
+        List<HistoryEvent> remaining = new ArrayList<>();
+        this.queue.drainTo(remaining);
+        remaining.remove(SHUTDOWN);
+        this.writeOnWorker(remaining);
+    }
+
+    /**
+     * the worker must outlive any failure, once it is gone login hang on full queue with {@link OverflowPolicy#BLOCK}
+     */
+    private void writeOnWorker(List<HistoryEvent> events) {
+        try {
+            this.write(events);
+        } catch (RuntimeException e) {
+            this.failed.addAndGet(events.size());
+            log.error("can't write {} history access token events", events.size(), e);
+        }
+    }
+
+    /**
+     * write events in order, consecutive event of the same kind in one jdbc batch
+     */
+    private void write(List<HistoryEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int from = 0;
+        while (from < events.size()) {
+            boolean login = events.get(from).login;
+            int to = from;
+            List<Object[]> args = new ArrayList<>();
+            while (to < events.size() && events.get(to).login == login) {
+                args.add(events.get(to).args);
+                to++;
+            }
+
+            this.writeBatch(login, args);
+            from = to;
+        }
+
+        if (this.flushTimer != null) {
+            this.flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * one batch, retried once (e.g. connection reset), then row by row so one bad row doesn't lose the others.
+     * pgjdbc send the batch with one sync, it is one implicit transaction: failed batch wrote nothing
+     */
+    private void writeBatch(boolean login, List<Object[]> args) {
+        String sql = login ? insertHistoryAccessTokenSql : updateHistoryAccessTokenSql;
+        int[] types = login ? insertTypes : updateTypes;
+        String kind = login ? "login" : "logout";
+        RuntimeException batchFailure = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                this.jdbcTemplate.batchUpdate(sql, args, types);
+                return;
+            } catch (RuntimeException e) {
+                batchFailure = e;
+            }
+        }
+
+        log.warn("can't write batch of {} history access token {} events, write them one by one",
+                args.size(), kind, batchFailure);
+        for (Object[] row : args) {
+            try {
+                this.jdbcTemplate.update(sql, row, types);
+            } catch (RuntimeException e) {
+                this.failed.incrementAndGet();
+                log.error("can't write history access token {} event of access_id {}", kind, row[login ? 0 : 2], e);
+            }
+        }
+    }
+
+    /**
+     * wait until queued events are written by the worker, then write the rest and event after that on caller thread
+     */
+    @Override
+    public void close() throws InterruptedException {
+        this.queue.put(SHUTDOWN);
+        this.worker.join(TimeUnit.SECONDS.toMillis(30));
+        if (this.worker.isAlive()) {
+            log.warn("history access token writer still running after 30 seconds, {} events left", this.queue.size());
+            return;
+        }
+
+        synchronized (this.directWriteLock) {
+            this.drained = true;
+            this.writeRemaining();
+        }
+    }
+
+    private static final class HistoryEvent {
+        private final boolean login;
+        private final Object[] args;
+
+        private HistoryEvent(boolean login, Object[] args) {
+            this.login = login;
+            this.args = args;
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.tabeldata.oauth.repository;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.maryanto.dimas.plugins.web.commons.ui.datatables.DataTablesRequest;
 import com.maryanto.dimas.plugins.web.commons.ui.datatables.dao.DaoDataTablesPattern;
+import com.tabeldata.oauth.codec.JdkSerializationTokenCodec;
+import com.tabeldata.oauth.codec.TokenCodec;
 import com.tabeldata.oauth.models.OauthAccessTokenExtended;
+import com.tabeldata.oauth.models.KeysetPage;
 import com.tabeldata.oauth.models.OauthAccessTokenHistory;
+import com.tabeldata.oauth.models.OauthStoredAccessToken;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -17,7 +23,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2RefreshToken;
-import org.springframework.security.oauth2.common.util.SerializationUtils;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
 import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
@@ -26,65 +31,90 @@ import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.util.Assert;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializable, DaoDataTablesPattern<OauthAccessTokenExtended> {
 
     private final static Logger console = LoggerFactory.getLogger(JdbcTokenStoreCustomizer.class);
-
-    private String insertAccessTokenSql = "insert into oauth.access_token (token_id, token, auth_id, user_name, client_id, authentication, refresh_token, ip_address)\n" +
-            "values (?, ?, ?, ?, ?, ?, ?, ?)";
-    private String selectAccessTokenSql = "select token_id, token\n" +
+    private final static ObjectMapper PLAN_READER = new ObjectMapper();
+    private final static int MAX_UPSERT_ATTEMPTS = 3;
+
+    private String upsertAccessTokenSql = "/* token.upsertAccessToken */ with previous as (\n" +
+            "    select token_id\n" +
+            "    from oauth.access_token\n" +
+            "    where auth_id = ?\n" +
+            "        for update\n" +
+            ")\n" +
+            "insert into oauth.access_token (token_id, token, auth_id, user_name, client_id, authentication, refresh_token, ip_address, login_at, expires_at)\n" +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, now(), ?)\n" +
+            "on conflict (auth_id) do update\n" +
+            "    set token_id       = excluded.token_id,\n" +
+            "        token          = excluded.token,\n" +
+            "        user_name      = excluded.user_name,\n" +
+            "        client_id      = excluded.client_id,\n" +
+            "        authentication = excluded.authentication,\n" +
+            "        refresh_token  = excluded.refresh_token,\n" +
+            "        ip_address     = excluded.ip_address,\n" +
+            "        login_at       = excluded.login_at,\n" +
+            "        expires_at     = excluded.expires_at\n" +
+            "    where exists(select 1 from previous)\n" +
+            "returning (select token_id from previous) as previous_token_id";
+    private String selectAccessTokenSql = "/* token.selectAccessToken */ select token_id, token\n" +
+            "from oauth.access_token\n" +
+            "where token_id = ?";
+    private String selectAccessTokenAuthenticationSql = "/* token.selectAccessTokenAuthentication */ select token_id, authentication\n" +
             "from oauth.access_token\n" +
             "where token_id = ?";
-    private String selectAccessTokenAuthenticationSql = "select token_id, authentication\n" +
+    private String selectAccessTokenWithAuthenticationSql = "/* token.selectAccessTokenWithAuthentication */ select token_id, token, authentication\n" +
             "from oauth.access_token\n" +
             "where token_id = ?";
-    private String selectAccessTokenFromAuthenticationSql = "select token_id, token\n" +
+    private String selectAccessTokenFromAuthenticationSql = "/* token.selectAccessTokenFromAuthentication */ select token_id, token\n" +
             "from oauth.access_token\n" +
             "where auth_id = ?";
-    private String selectAccessTokensFromUserNameAndClientIdSql = "select token_id, token\n" +
+    private String selectAccessTokensFromUserNameAndClientIdSql = "/* token.selectAccessTokensFromUserNameAndClientId */ select token_id, token\n" +
             "from oauth.access_token\n" +
             "where user_name = ?\n" +
             "  and client_id = ?";
-    private String selectAccessTokensFromUserNameSql = "select token_id, token\n" +
+    private String selectAccessTokensFromUserNameSql = "/* token.selectAccessTokensFromUserName */ select token_id, token\n" +
             "from oauth.access_token\n" +
             "where user_name = ?";
-    private String selectAccessTokensFromClientIdSql = "select token_id, token\n" +
+    private String selectAccessTokensFromClientIdSql = "/* token.selectAccessTokensFromClientId */ select token_id, token\n" +
             "from oauth.access_token\n" +
             "where client_id = ?";
-    private String deleteAccessTokenSql = "delete\n" +
+    private String deleteAccessTokenSql = "/* token.deleteAccessToken */ delete\n" +
             "from oauth.access_token\n" +
             "where token_id = ?";
-    private String insertRefreshTokenSql = "insert into oauth.refresh_token (token_id, token, authentication)\n" +
-            "values (?, ?, ?)";
-    private String selectRefreshTokenSql = "select token_id, token\n" +
+    private String insertRefreshTokenSql = "/* token.insertRefreshToken */ insert into oauth.refresh_token (token_id, token, authentication)\n" +
+            "values (?, ?, ?)\n" +
+            "on conflict (token_id) do update\n" +
+            "  set token          = excluded.token,\n" +
+            "      authentication = excluded.authentication";
+    private String selectRefreshTokenSql = "/* token.selectRefreshToken */ select token_id, token\n" +
             "from oauth.refresh_token\n" +
             "where token_id = ?";
-    private String selectRefreshTokenAuthenticationSql = "select token_id, authentication\n" +
+    private String selectRefreshTokenAuthenticationSql = "/* token.selectRefreshTokenAuthentication */ select token_id, authentication\n" +
             "from oauth.refresh_token\n" +
             "where token_id = ?";
-    private String deleteRefreshTokenSql = "delete\n" +
+    private String deleteRefreshTokenSql = "/* token.deleteRefreshToken */ delete\n" +
             "from oauth.refresh_token\n" +
             "where token_id = ?";
-    private String deleteAccessTokenFromRefreshTokenSql = "delete\n" +
+    private String deleteAccessTokenFromRefreshTokenSql = "/* token.deleteAccessTokenFromRefreshToken */ delete\n" +
             "from oauth.access_token\n" +
             "where refresh_token = ?";
-    private String insertHistoryAccessTokenSql = "insert into oauth.history_access_token (id, access_id, client_id, token, ip_address, user_name, login_at, is_logout, logout_at, logout_by)\n" +
-            "VALUES (uuid_generate_v4(), ?, ?, ?, ?, ?, now(), false, null, null)";
-    private String updateHistoryAccessTokenSql = "update oauth.history_access_token\n" +
+    private String insertHistoryAccessTokenSql = "/* token.insertHistoryAccessToken */ insert into oauth.history_access_token (id, access_id, client_id, token, ip_address, user_name, login_at, expires_at, is_logout, logout_at, logout_by)\n" +
+            "VALUES (uuid_generate_v4(), ?, ?, ?, ?, ?, now(), ?, false, null, null)";
+    private String updateHistoryAccessTokenSql = "/* token.updateHistoryAccessToken */ update oauth.history_access_token\n" +
             "set is_logout = true,\n" +
             "    logout_at = now(),\n" +
             "    logout_by = ?\n" +
@@ -92,6 +122,10 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             "  and is_logout = false";
 
     private AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+    private TokenCodec tokenCodec = new JdkSerializationTokenCodec();
+    private HistoryAccessTokenWriter historyWriter;
+    private TokenKeyHasher tokenKeyHasher = new TokenKeyHasher(TokenKeyHasher.MD5);
+    private TokenKeyHasher legacyTokenKeyHasher;
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
@@ -144,38 +178,64 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             refreshToken = token.getRefreshToken().getValue();
         }
 
-        if (this.readAccessToken(token.getValue()) != null) {
-            this.removeAccessToken(token.getValue());
-        }
-
         String authId = this.authenticationKeyGenerator.extractKey(authentication);
         String tokenId = this.extractTokenKey(token.getValue());
         String username = authentication.isClientOnly() ? null : authentication.getName();
         String clientId = authentication.getOAuth2Request().getClientId();
 
-        SqlLobValue tokenLobValue = new SqlLobValue(this.serializeAccessToken(token));
-        this.jdbcTemplate.update(
-                this.insertAccessTokenSql,
-                new Object[]{
-                        tokenId,
-                        tokenLobValue,
-                        authId,
-                        username,
-                        clientId,
-                        new SqlLobValue(this.serializeAuthentication(authentication)),
-                        this.extractTokenKey(refreshToken),
-                        getRemoteAddress()
-                }, new int[]{Types.VARCHAR, Types.BLOB, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BLOB, Types.VARCHAR, Types.VARCHAR});
+        String ipAddress = getRemoteAddress();
+        byte[] tokenBytes = this.serializeAccessToken(token);
+        Timestamp expiresAt = token.getExpiration() != null ? new Timestamp(token.getExpiration().getTime()) : null;
+        byte[] authenticationBytes = this.serializeAuthentication(authentication);
+        String refreshTokenId = this.extractTokenKey(refreshToken);
+
+        // no row back means a concurrent insert of the same auth_id won after our snapshot,
+        // run it again so previous sees (and locks) that row and its history gets closed
+        String[] upserted = null;
+        for (int attempt = 0; upserted == null; attempt++) {
+            if (attempt == MAX_UPSERT_ATTEMPTS) {
+                throw new ConcurrencyFailureException("Could not store access token of authentication " + authId + " after " + attempt + " attempts");
+            }
+            upserted = this.jdbcTemplate.query(
+                    this.upsertAccessTokenSql,
+                    new Object[]{
+                            authId,
+                            tokenId,
+                            new SqlLobValue(tokenBytes),
+                            authId,
+                            username,
+                            clientId,
+                            new SqlLobValue(authenticationBytes),
+                            refreshTokenId,
+                            ipAddress,
+                            expiresAt
+                    },
+                    new int[]{Types.VARCHAR, Types.VARCHAR, Types.BLOB, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BLOB, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP},
+                    rs -> rs.next() ? new String[]{rs.getString("previous_token_id")} : null);
+        }
+        String previousTokenId = upserted[0];
+
+        if (tokenId.equals(previousTokenId)) {
+            return;
+        } else if (previousTokenId != null) {
+            this.logoutHistory(previousTokenId, "timeout");
+        }
+
+        if (this.historyWriter != null) {
+            this.historyWriter.login(tokenId, clientId, tokenBytes, ipAddress, username, expiresAt);
+            return;
+        }
 
         this.jdbcTemplate.update(
                 this.insertHistoryAccessTokenSql,
                 new Object[]{
                         tokenId,
                         clientId,
-                        tokenLobValue,
-                        getRemoteAddress(),
-                        username},
-                new int[]{Types.VARCHAR, Types.VARCHAR, Types.BLOB, Types.VARCHAR, Types.VARCHAR});
+                        new SqlLobValue(tokenBytes),
+                        ipAddress,
+                        username,
+                        expiresAt},
+                new int[]{Types.VARCHAR, Types.VARCHAR, Types.BLOB, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP});
     }
 
     @Override
@@ -183,10 +243,10 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
         OAuth2AccessToken accessToken = null;
 
         try {
-            accessToken = this.jdbcTemplate.queryForObject(
+            accessToken = this.queryForObjectByTokenKey(
                     this.selectAccessTokenSql,
                     (rs, rowNum) -> JdbcTokenStoreCustomizer.this.deserializeAccessToken(rs.getBytes(2)),
-                    this.extractTokenKey(tokenValue));
+                    tokenValue);
         } catch (EmptyResultDataAccessException var4) {
             if (console.isInfoEnabled()) {
                 console.info("Failed to find access token for token " + tokenValue);
@@ -210,29 +270,36 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
     @Override
     public void removeAccessToken(String tokenValue) {
-        String tokenId = this.extractTokenKey(tokenValue);
-
-        this.jdbcTemplate.update(
-                this.deleteAccessTokenSql,
-                tokenId
-        );
+        for (String tokenId : this.extractTokenKeys(tokenValue)) {
+            this.jdbcTemplate.update(
+                    this.deleteAccessTokenSql,
+                    tokenId
+            );
 
-        this.jdbcTemplate.update(
-                this.updateHistoryAccessTokenSql,
-                "timeout", tokenId);
+            this.logoutHistory(tokenId, "timeout");
+        }
     }
 
     public void removeAccessToken(String tokenValue, String username) {
-        String tokenId = this.extractTokenKey(tokenValue);
+        for (String tokenId : this.extractTokenKeys(tokenValue)) {
+            this.jdbcTemplate.update(
+                    this.deleteAccessTokenSql,
+                    tokenId
+            );
 
-        this.jdbcTemplate.update(
-                this.deleteAccessTokenSql,
-                tokenId
-        );
+            this.logoutHistory(tokenId, username);
+        }
+    }
+
+    private void logoutHistory(String tokenId, String logoutBy) {
+        if (this.historyWriter != null) {
+            this.historyWriter.logout(tokenId, logoutBy);
+            return;
+        }
 
         this.jdbcTemplate.update(
                 this.updateHistoryAccessTokenSql,
-                username, tokenId);
+                logoutBy, tokenId);
     }
 
     @Override
@@ -245,10 +312,10 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
         OAuth2Authentication authentication = null;
 
         try {
-            authentication = this.jdbcTemplate.queryForObject(
+            authentication = this.queryForObjectByTokenKey(
                     this.selectAccessTokenAuthenticationSql,
                     (rs, rowNum) -> JdbcTokenStoreCustomizer.this.deserializeAuthentication(rs.getBytes(2)),
-                    this.extractTokenKey(token));
+                    token);
         } catch (EmptyResultDataAccessException var4) {
             if (console.isInfoEnabled()) {
                 console.info("Failed to find access token for token " + token);
@@ -261,6 +328,38 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
         return authentication;
     }
 
+    /**
+     * read access token and its authentication from single row, one round trip instead of
+     * {@link #readAccessToken(String)} followed by {@link #readAuthentication(String)}
+     *
+     * @param tokenValue access token value
+     * @return access token with authentication or null when not found
+     */
+    public OauthStoredAccessToken readAccessTokenWithAuthentication(String tokenValue) {
+        OauthStoredAccessToken storedAccessToken = null;
+
+        try {
+            storedAccessToken = this.queryForObjectByTokenKey(
+                    this.selectAccessTokenWithAuthenticationSql,
+                    (rs, rowNum) -> {
+                        byte[] authentication = rs.getBytes(3);
+                        return new OauthStoredAccessToken(
+                                JdbcTokenStoreCustomizer.this.deserializeAccessToken(rs.getBytes(2)),
+                                authentication != null ? JdbcTokenStoreCustomizer.this.deserializeAuthentication(authentication) : null);
+                    },
+                    tokenValue);
+        } catch (EmptyResultDataAccessException var4) {
+            if (console.isInfoEnabled()) {
+                console.info("Failed to find access token for token " + tokenValue);
+            }
+        } catch (IllegalArgumentException var5) {
+            console.warn("Failed to deserialize access token or authentication for " + tokenValue, var5);
+            this.removeAccessToken(tokenValue);
+        }
+
+        return storedAccessToken;
+    }
+
     @Override
     public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
         this.jdbcTemplate.update(
@@ -277,10 +376,10 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
         OAuth2RefreshToken refreshToken = null;
 
         try {
-            refreshToken = this.jdbcTemplate.queryForObject(
+            refreshToken = this.queryForObjectByTokenKey(
                     this.selectRefreshTokenSql,
                     (rs, rowNum) -> JdbcTokenStoreCustomizer.this.deserializeRefreshToken(rs.getBytes(2)),
-                    this.extractTokenKey(token));
+                    token);
         } catch (EmptyResultDataAccessException var4) {
             if (console.isInfoEnabled()) {
                 console.info("Failed to find refresh token for token " + token);
@@ -300,7 +399,9 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
     @Override
     public void removeRefreshToken(String token) {
-        this.jdbcTemplate.update(this.deleteRefreshTokenSql, this.extractTokenKey(token));
+        for (String tokenId : this.extractTokenKeys(token)) {
+            this.jdbcTemplate.update(this.deleteRefreshTokenSql, tokenId);
+        }
     }
 
     @Override
@@ -313,10 +414,10 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
         OAuth2Authentication authentication = null;
 
         try {
-            authentication = this.jdbcTemplate.queryForObject(
+            authentication = this.queryForObjectByTokenKey(
                     this.selectRefreshTokenAuthenticationSql,
                     (rs, rowNum) -> JdbcTokenStoreCustomizer.this.deserializeAuthentication(rs.getBytes(2)),
-                    this.extractTokenKey(value));
+                    value);
         } catch (EmptyResultDataAccessException var4) {
             if (console.isInfoEnabled()) {
                 console.info("Failed to find access token for token " + value);
@@ -336,7 +437,9 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
     @Override
     public void removeAccessTokenUsingRefreshToken(String refreshToken) {
-        this.jdbcTemplate.update(this.deleteAccessTokenFromRefreshTokenSql, new Object[]{this.extractTokenKey(refreshToken)}, new int[]{12});
+        for (String tokenId : this.extractTokenKeys(refreshToken)) {
+            this.jdbcTemplate.update(this.deleteAccessTokenFromRefreshTokenSql, new Object[]{tokenId}, new int[]{12});
+        }
     }
 
     public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
@@ -408,51 +511,96 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
     }
 
     protected String extractTokenKey(String value) {
-        if (value == null) {
-            return null;
-        } else {
-            MessageDigest digest;
-            try {
-                digest = MessageDigest.getInstance("MD5");
-            } catch (NoSuchAlgorithmException var5) {
-                throw new IllegalStateException("MD5 algorithm not available.  Fatal (should be in the JDK).");
-            }
+        return this.tokenKeyHasher.hash(value);
+    }
 
-            try {
-                byte[] bytes = digest.digest(value.getBytes("UTF-8"));
-                return String.format("%032x", new BigInteger(1, bytes));
-            } catch (UnsupportedEncodingException var4) {
-                throw new IllegalStateException("UTF-8 encoding not available.  Fatal (should be in the JDK).");
+    /**
+     * key of current algorithm, followed by legacy key when configured
+     */
+    protected List<String> extractTokenKeys(String value) {
+        if (this.legacyTokenKeyHasher == null || value == null) {
+            return Collections.singletonList(this.extractTokenKey(value));
+        }
+        return Arrays.asList(this.extractTokenKey(value), this.legacyTokenKeyHasher.hash(value));
+    }
+
+    /**
+     * query single row by token key, and by legacy key when not found
+     */
+    private <T> T queryForObjectByTokenKey(String sql, RowMapper<T> rowMapper, String value) {
+        try {
+            return this.jdbcTemplate.queryForObject(sql, rowMapper, this.extractTokenKey(value));
+        } catch (EmptyResultDataAccessException notFound) {
+            if (this.legacyTokenKeyHasher == null || value == null) {
+                throw notFound;
             }
+            return this.jdbcTemplate.queryForObject(sql, rowMapper, this.legacyTokenKeyHasher.hash(value));
         }
     }
 
     protected byte[] serializeAccessToken(OAuth2AccessToken token) {
-        return SerializationUtils.serialize(token);
+        return this.tokenCodec.encodeAccessToken(token);
     }
 
     protected byte[] serializeRefreshToken(OAuth2RefreshToken token) {
-        return SerializationUtils.serialize(token);
+        return this.tokenCodec.encodeRefreshToken(token);
     }
 
     protected byte[] serializeAuthentication(OAuth2Authentication authentication) {
-        return SerializationUtils.serialize(authentication);
+        return this.tokenCodec.encodeAuthentication(authentication);
     }
 
     protected OAuth2AccessToken deserializeAccessToken(byte[] token) {
-        return (OAuth2AccessToken) SerializationUtils.deserialize(token);
+        return this.tokenCodec.decodeAccessToken(token);
+    }
+
+    protected String deserializeAccessTokenValue(byte[] token) {
+        return this.tokenCodec.decodeAccessTokenValue(token);
     }
 
     protected OAuth2RefreshToken deserializeRefreshToken(byte[] token) {
-        return (OAuth2RefreshToken) SerializationUtils.deserialize(token);
+        return this.tokenCodec.decodeRefreshToken(token);
     }
 
     protected OAuth2Authentication deserializeAuthentication(byte[] authentication) {
-        return (OAuth2Authentication) SerializationUtils.deserialize(authentication);
+        return this.tokenCodec.decodeAuthentication(authentication);
     }
 
-    public void setInsertAccessTokenSql(String insertAccessTokenSql) {
-        this.insertAccessTokenSql = insertAccessTokenSql;
+    public TokenCodec getTokenCodec() {
+        return tokenCodec;
+    }
+
+    public void setTokenCodec(TokenCodec tokenCodec) {
+        Assert.notNull(tokenCodec, "TokenCodec required");
+        this.tokenCodec = tokenCodec;
+    }
+
+    /**
+     * @param historyWriter write {@code oauth.history_access_token} in background, null to write it in caller thread
+     */
+    public void setHistoryWriter(HistoryAccessTokenWriter historyWriter) {
+        this.historyWriter = historyWriter;
+    }
+
+    public void setTokenKeyHasher(TokenKeyHasher tokenKeyHasher) {
+        Assert.notNull(tokenKeyHasher, "TokenKeyHasher required");
+        this.tokenKeyHasher = tokenKeyHasher;
+    }
+
+    /**
+     * @param legacyTokenKeyHasher hasher of rows written before {@link #setTokenKeyHasher(TokenKeyHasher)} changed,
+     *                             tried when token not found by current key and on remove, null to disable
+     */
+    public void setLegacyTokenKeyHasher(TokenKeyHasher legacyTokenKeyHasher) {
+        this.legacyTokenKeyHasher = legacyTokenKeyHasher;
+    }
+
+    /**
+     * @param upsertAccessTokenSql insert or replace access token of {@code auth_id}, returning {@code token_id} it replaced,
+     *                             or no row when the conflicting row was not visible to it (statement is then retried)
+     */
+    public void setUpsertAccessTokenSql(String upsertAccessTokenSql) {
+        this.upsertAccessTokenSql = upsertAccessTokenSql;
     }
 
     public void setSelectAccessTokenSql(String selectAccessTokenSql) {
@@ -475,6 +623,10 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
         this.deleteRefreshTokenSql = deleteRefreshTokenSql;
     }
 
+    public void setSelectAccessTokenWithAuthenticationSql(String selectAccessTokenWithAuthenticationSql) {
+        this.selectAccessTokenWithAuthenticationSql = selectAccessTokenWithAuthenticationSql;
+    }
+
     public void setSelectAccessTokenAuthenticationSql(String selectAccessTokenAuthenticationSql) {
         this.selectAccessTokenAuthenticationSql = selectAccessTokenAuthenticationSql;
     }
@@ -517,13 +669,14 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
     @Override
     public List<OauthAccessTokenExtended> datatables(DataTablesRequest<OauthAccessTokenExtended> params) {
         MapSqlParameterSource map = new MapSqlParameterSource();
-        StringBuilder sb = new StringBuilder("select auth_id    as authentication_id,\n" +
+        StringBuilder sb = new StringBuilder("/* token.datatables */ select auth_id    as authentication_id,\n" +
                 "       token_id   as token_id,\n" +
                 "       token      as access_token,\n" +
                 "       user_name   as username,\n" +
                 "       client_id  as client_id,\n" +
                 "       ip_address as ip_address,\n" +
-                "       login_at   as login_time\n" +
+                "       login_at   as login_time,\n" +
+                "       expires_at as expired_time\n" +
                 "from oauth.access_token where 1=1 ");
 
         OauthAccessTokenExtended value = params.getValue();
@@ -542,6 +695,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", value.getIpAddress());
         }
 
+        if (value.getExpiredAt() != null) {
+            sb.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", value.getExpiredAt());
+        }
+
         if (params.getColOrder() != null) {
             switch (params.getColOrder().intValue()) {
                 case 0:
@@ -564,6 +722,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
                         sb.append(" order by login_time asc ");
                     else sb.append(" order by login_time desc ");
                     break;
+                case 4:
+                    if (params.getColDir().equalsIgnoreCase("asc"))
+                        sb.append(" order by expired_time asc ");
+                    else sb.append(" order by expired_time desc ");
+                    break;
             }
         }
 
@@ -573,14 +736,13 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
         List<OauthAccessTokenExtended> list = this.namedJdbcTemplate.query(sb.toString(), map, (resultSet, i) -> {
             try {
-                OAuth2AccessToken oauth2AccessToken = JdbcTokenStoreCustomizer.this.deserializeAccessToken(resultSet.getBytes("access_token"));
                 return new OauthAccessTokenExtended(
                         resultSet.getString("username"),
                         resultSet.getString("client_id"),
                         resultSet.getString("ip_address"),
-                        oauth2AccessToken.getValue(),
+                        JdbcTokenStoreCustomizer.this.deserializeAccessTokenValue(resultSet.getBytes("access_token")),
                         resultSet.getTimestamp("login_time"),
-                        new Timestamp(oauth2AccessToken.getExpiration().getTime())
+                        resultSet.getTimestamp("expired_time")
                 );
             } catch (IllegalArgumentException var5) {
                 String token = resultSet.getString("token_id");
@@ -593,7 +755,7 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
     @Override
     public Long datatables(OauthAccessTokenExtended value) {
-        StringBuilder sb = new StringBuilder("select count(*) as rows from oauth.access_token where 1=1 ");
+        StringBuilder sb = new StringBuilder("/* token.datatablesCount */ select count(*) as rows from oauth.access_token where 1=1 ");
         MapSqlParameterSource map = new MapSqlParameterSource();
 
         if (StringUtils.isNotBlank(value.getClientId())) {
@@ -611,6 +773,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", value.getIpAddress());
         }
 
+        if (value.getExpiredAt() != null) {
+            sb.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", value.getExpiredAt());
+        }
+
         Long row = this.namedJdbcTemplate.queryForObject(sb.toString(), map, new RowMapper<Long>() {
             @Override
             public Long mapRow(ResultSet resultSet, int i) throws SQLException {
@@ -641,12 +808,13 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             String clientId,
             DataTablesRequest<OauthAccessTokenHistory> params) {
         MapSqlParameterSource map = new MapSqlParameterSource();
-        StringBuilder queryBuilder = new StringBuilder("select access_id,\n" +
+        StringBuilder queryBuilder = new StringBuilder("/* history.byUsernameAndClientId */ select access_id,\n" +
                 "       token,\n" +
                 "       client_id,\n" +
                 "       ip_address,\n" +
                 "       user_name,\n" +
                 "       login_at,\n" +
+                "       expires_at,\n" +
                 "       is_logout,\n" +
                 "       logout_at,\n" +
                 "       logout_by\n" +
@@ -668,6 +836,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", new StringBuilder("%").append(value.getIpAddress()).append("%").toString());
         }
 
+        if (value.getExpiredAt() != null) {
+            queryBuilder.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", value.getExpiredAt());
+        }
+
         if (params.getColOrder() != null) {
             switch (params.getColOrder().intValue()) {
                 case 0:
@@ -705,6 +878,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
                         queryBuilder.append(" order by logout_by asc ");
                     else queryBuilder.append(" order by logout_by desc ");
                     break;
+                case 7:
+                    if (params.getColDir().equalsIgnoreCase("asc"))
+                        queryBuilder.append(" order by expires_at asc ");
+                    else queryBuilder.append(" order by expires_at desc ");
+                    break;
             }
         }
 
@@ -716,14 +894,13 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             @Override
             public OauthAccessTokenHistory mapRow(ResultSet resultSet, int i) throws SQLException {
                 try {
-                    OAuth2AccessToken oauth2AccessToken = JdbcTokenStoreCustomizer.this.deserializeAccessToken(resultSet.getBytes("token"));
                     return new OauthAccessTokenHistory(
                             resultSet.getString("user_name"),
                             resultSet.getString("client_id"),
                             resultSet.getString("ip_address"),
-                            oauth2AccessToken.getValue(),
+                            JdbcTokenStoreCustomizer.this.deserializeAccessTokenValue(resultSet.getBytes("token")),
                             resultSet.getTimestamp("login_at"),
-                            new Timestamp(oauth2AccessToken.getExpiration().getTime()),
+                            resultSet.getTimestamp("expires_at"),
                             resultSet.getBoolean("is_logout"),
                             resultSet.getTimestamp("logout_at"),
                             resultSet.getString("logout_by")
@@ -741,7 +918,7 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
     public Long historyByUsernameAndClientIdDatatables(String username, String clientId, OauthAccessTokenHistory param) {
         MapSqlParameterSource map = new MapSqlParameterSource();
-        StringBuilder queryBuilder = new StringBuilder("select count(*) as rows\n" +
+        StringBuilder queryBuilder = new StringBuilder("/* history.byUsernameAndClientIdCount */ select count(*) as rows\n" +
                 "from oauth.history_access_token\n" +
                 "where 1 = 1 \n" +
                 "  and client_id = :clientId\n " +
@@ -759,6 +936,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", new StringBuilder("%").append(param.getIpAddress()).append("%").toString());
         }
 
+        if (param.getExpiredAt() != null) {
+            queryBuilder.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", param.getExpiredAt());
+        }
+
         Long row = this.namedJdbcTemplate.queryForObject(queryBuilder.toString(), map, new RowMapper<Long>() {
             @Override
             public Long mapRow(ResultSet resultSet, int i) throws SQLException {
@@ -787,12 +969,13 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             String username,
             DataTablesRequest<OauthAccessTokenHistory> params) {
         MapSqlParameterSource map = new MapSqlParameterSource();
-        StringBuilder queryBuilder = new StringBuilder("select access_id,\n" +
+        StringBuilder queryBuilder = new StringBuilder("/* history.byUsername */ select access_id,\n" +
                 "       token,\n" +
                 "       client_id,\n" +
                 "       ip_address,\n" +
                 "       user_name,\n" +
                 "       login_at,\n" +
+                "       expires_at,\n" +
                 "       is_logout,\n" +
                 "       logout_at,\n" +
                 "       logout_by\n" +
@@ -817,6 +1000,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", new StringBuilder("%").append(value.getIpAddress()).append("%").toString());
         }
 
+        if (value.getExpiredAt() != null) {
+            queryBuilder.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", value.getExpiredAt());
+        }
+
         if (params.getColOrder() != null) {
             switch (params.getColOrder().intValue()) {
                 case 0:
@@ -854,6 +1042,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
                         queryBuilder.append(" order by logout_by asc ");
                     else queryBuilder.append(" order by logout_by desc ");
                     break;
+                case 7:
+                    if (params.getColDir().equalsIgnoreCase("asc"))
+                        queryBuilder.append(" order by expires_at asc ");
+                    else queryBuilder.append(" order by expires_at desc ");
+                    break;
             }
         }
 
@@ -865,14 +1058,13 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             @Override
             public OauthAccessTokenHistory mapRow(ResultSet resultSet, int i) throws SQLException {
                 try {
-                    OAuth2AccessToken oauth2AccessToken = JdbcTokenStoreCustomizer.this.deserializeAccessToken(resultSet.getBytes("token"));
                     return new OauthAccessTokenHistory(
                             resultSet.getString("user_name"),
                             resultSet.getString("client_id"),
                             resultSet.getString("ip_address"),
-                            oauth2AccessToken.getValue(),
+                            JdbcTokenStoreCustomizer.this.deserializeAccessTokenValue(resultSet.getBytes("token")),
                             resultSet.getTimestamp("login_at"),
-                            new Timestamp(oauth2AccessToken.getExpiration().getTime()),
+                            resultSet.getTimestamp("expires_at"),
                             resultSet.getBoolean("is_logout"),
                             resultSet.getTimestamp("logout_at"),
                             resultSet.getString("logout_by")
@@ -890,7 +1082,7 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
     public Long historyByUsernameDatatables(String username, OauthAccessTokenHistory param) {
         MapSqlParameterSource map = new MapSqlParameterSource();
-        StringBuilder queryBuilder = new StringBuilder("select count(*) as rows\n" +
+        StringBuilder queryBuilder = new StringBuilder("/* history.byUsernameCount */ select count(*) as rows\n" +
                 "from oauth.history_access_token\n" +
                 "where 1 = 1 \n" +
                 "  and user_name = :userName ");
@@ -911,6 +1103,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", new StringBuilder("%").append(param.getIpAddress()).append("%").toString());
         }
 
+        if (param.getExpiredAt() != null) {
+            queryBuilder.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", param.getExpiredAt());
+        }
+
         Long row = this.namedJdbcTemplate.queryForObject(queryBuilder.toString(), map, new RowMapper<Long>() {
             @Override
             public Long mapRow(ResultSet resultSet, int i) throws SQLException {
@@ -940,12 +1137,13 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             String clientId,
             DataTablesRequest<OauthAccessTokenHistory> params) {
         MapSqlParameterSource map = new MapSqlParameterSource();
-        StringBuilder queryBuilder = new StringBuilder("select access_id,\n" +
+        StringBuilder queryBuilder = new StringBuilder("/* history.byClientId */ select access_id,\n" +
                 "       token,\n" +
                 "       client_id,\n" +
                 "       ip_address,\n" +
                 "       user_name,\n" +
                 "       login_at,\n" +
+                "       expires_at,\n" +
                 "       is_logout,\n" +
                 "       logout_at,\n" +
                 "       logout_by\n" +
@@ -970,6 +1168,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", new StringBuilder("%").append(value.getIpAddress()).append("%").toString());
         }
 
+        if (value.getExpiredAt() != null) {
+            queryBuilder.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", value.getExpiredAt());
+        }
+
         if (params.getColOrder() != null) {
             switch (params.getColOrder().intValue()) {
                 case 0:
@@ -1007,6 +1210,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
                         queryBuilder.append(" order by logout_by asc ");
                     else queryBuilder.append(" order by logout_by desc ");
                     break;
+                case 7:
+                    if (params.getColDir().equalsIgnoreCase("asc"))
+                        queryBuilder.append(" order by expires_at asc ");
+                    else queryBuilder.append(" order by expires_at desc ");
+                    break;
             }
         }
 
@@ -1018,14 +1226,13 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             @Override
             public OauthAccessTokenHistory mapRow(ResultSet resultSet, int i) throws SQLException {
                 try {
-                    OAuth2AccessToken oauth2AccessToken = JdbcTokenStoreCustomizer.this.deserializeAccessToken(resultSet.getBytes("token"));
                     return new OauthAccessTokenHistory(
                             resultSet.getString("user_name"),
                             resultSet.getString("client_id"),
                             resultSet.getString("ip_address"),
-                            oauth2AccessToken.getValue(),
+                            JdbcTokenStoreCustomizer.this.deserializeAccessTokenValue(resultSet.getBytes("token")),
                             resultSet.getTimestamp("login_at"),
-                            new Timestamp(oauth2AccessToken.getExpiration().getTime()),
+                            resultSet.getTimestamp("expires_at"),
                             resultSet.getBoolean("is_logout"),
                             resultSet.getTimestamp("logout_at"),
                             resultSet.getString("logout_by")
@@ -1043,7 +1250,7 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
 
     public Long historyByClientIdDatatables(String clientId, OauthAccessTokenHistory param) {
         MapSqlParameterSource map = new MapSqlParameterSource();
-        StringBuilder queryBuilder = new StringBuilder("select count(*) as rows\n" +
+        StringBuilder queryBuilder = new StringBuilder("/* history.byClientIdCount */ select count(*) as rows\n" +
                 "from oauth.history_access_token\n" +
                 "where 1 = 1 \n" +
                 "  and client_id = :clientId ");
@@ -1064,6 +1271,11 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
             map.addValue("ipAddress", new StringBuilder("%").append(param.getIpAddress()).append("%").toString());
         }
 
+        if (param.getExpiredAt() != null) {
+            queryBuilder.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", param.getExpiredAt());
+        }
+
         Long row = this.namedJdbcTemplate.queryForObject(queryBuilder.toString(), map, new RowMapper<Long>() {
             @Override
             public Long mapRow(ResultSet resultSet, int i) throws SQLException {
@@ -1090,4 +1302,239 @@ public class JdbcTokenStoreCustomizer extends JdbcTokenStore implements Serializ
     }
 
 
+
+    /**
+     * current access token page ordered by {@code (login_at, auth_id)}, each page cost the same regardless of position
+     *
+     * @param value     filter, same as {@link #datatables(DataTablesRequest)}
+     * @param cursor    {@link KeysetPage#getNext()} of previous page, null for the first page
+     * @param length    page size
+     * @param ascending oldest login first, must be the same for all pages
+     * @throws IllegalArgumentException when cursor is invalid
+     */
+    public KeysetPage<OauthAccessTokenExtended> currentTokenPage(
+            OauthAccessTokenExtended value, String cursor, int length, boolean ascending) {
+        MapSqlParameterSource map = new MapSqlParameterSource();
+        StringBuilder sb = new StringBuilder("/* token.currentPage */ select auth_id,\n" +
+                "       token,\n" +
+                "       user_name,\n" +
+                "       client_id,\n" +
+                "       ip_address,\n" +
+                "       login_at,\n" +
+                "       expires_at\n" +
+                "from oauth.access_token\n" +
+                "where 1 = 1 ");
+        this.appendCurrentTokenFilter(sb, map, value);
+        this.appendKeyset(sb, map, cursor, ascending, "auth_id", length);
+
+        List<OauthAccessTokenExtended> list = new ArrayList<>();
+        KeysetCursor[] last = new KeysetCursor[1];
+        this.namedJdbcTemplate.query(sb.toString(), map, resultSet -> {
+            if (list.size() == length) {
+                list.add(null);
+                return;
+            }
+            last[0] = new KeysetCursor(resultSet.getTimestamp("login_at"), resultSet.getString("auth_id"));
+            list.add(new OauthAccessTokenExtended(
+                    resultSet.getString("user_name"),
+                    resultSet.getString("client_id"),
+                    resultSet.getString("ip_address"),
+                    this.deserializeAccessTokenValueOrNull(resultSet.getBytes("token")),
+                    resultSet.getTimestamp("login_at"),
+                    resultSet.getTimestamp("expires_at")));
+        });
+        return this.keysetPage(list, last[0], length);
+    }
+
+    /**
+     * estimated (or exact) count of current access token matching the filter
+     */
+    public long currentTokenCount(OauthAccessTokenExtended value, boolean exact) {
+        MapSqlParameterSource map = new MapSqlParameterSource();
+        StringBuilder where = new StringBuilder("from oauth.access_token\n" +
+                "where 1 = 1 ");
+        boolean filtered = this.appendCurrentTokenFilter(where, map, value);
+        return this.count(where, map, filtered, exact, "oauth.access_token");
+    }
+
+    /**
+     * history page ordered by {@code (login_at, id)}, each page cost the same regardless of position
+     *
+     * @param username  exact user name, null for every user
+     * @param clientId  exact client id, null for every client
+     * @param value     filter, same as history datatables
+     * @param cursor    {@link KeysetPage#getNext()} of previous page, null for the first page
+     * @param length    page size
+     * @param ascending oldest login first, must be the same for all pages
+     * @throws IllegalArgumentException when cursor is invalid
+     */
+    public KeysetPage<OauthAccessTokenHistory> historyPage(
+            String username, String clientId, OauthAccessTokenHistory value, String cursor, int length, boolean ascending) {
+        MapSqlParameterSource map = new MapSqlParameterSource();
+        StringBuilder sb = new StringBuilder("/* history.page */ select id,\n" +
+                "       token,\n" +
+                "       client_id,\n" +
+                "       ip_address,\n" +
+                "       user_name,\n" +
+                "       login_at,\n" +
+                "       expires_at,\n" +
+                "       is_logout,\n" +
+                "       logout_at,\n" +
+                "       logout_by\n" +
+                "from oauth.history_access_token\n" +
+                "where 1 = 1 ");
+        this.appendHistoryFilter(sb, map, username, clientId, value);
+        this.appendKeyset(sb, map, cursor, ascending, "id", length);
+
+        List<OauthAccessTokenHistory> list = new ArrayList<>();
+        KeysetCursor[] last = new KeysetCursor[1];
+        this.namedJdbcTemplate.query(sb.toString(), map, resultSet -> {
+            if (list.size() == length) {
+                list.add(null);
+                return;
+            }
+            last[0] = new KeysetCursor(resultSet.getTimestamp("login_at"), resultSet.getString("id"));
+            list.add(new OauthAccessTokenHistory(
+                    resultSet.getString("user_name"),
+                    resultSet.getString("client_id"),
+                    resultSet.getString("ip_address"),
+                    this.deserializeAccessTokenValueOrNull(resultSet.getBytes("token")),
+                    resultSet.getTimestamp("login_at"),
+                    resultSet.getTimestamp("expires_at"),
+                    resultSet.getBoolean("is_logout"),
+                    resultSet.getTimestamp("logout_at"),
+                    resultSet.getString("logout_by")));
+        });
+        return this.keysetPage(list, last[0], length);
+    }
+
+    /**
+     * estimated (or exact) count of history matching the filter
+     */
+    public long historyCount(String username, String clientId, OauthAccessTokenHistory value, boolean exact) {
+        MapSqlParameterSource map = new MapSqlParameterSource();
+        StringBuilder where = new StringBuilder("from oauth.history_access_token\n" +
+                "where 1 = 1 ");
+        boolean filtered = this.appendHistoryFilter(where, map, username, clientId, value);
+        return this.count(where, map, filtered, exact, "oauth.history_access_token");
+    }
+
+    private boolean appendCurrentTokenFilter(StringBuilder sb, MapSqlParameterSource map, OauthAccessTokenExtended value) {
+        int length = sb.length();
+        if (StringUtils.isNotBlank(value.getClientId())) {
+            sb.append(" and client_id like :clientId ");
+            map.addValue("clientId", "%" + value.getClientId() + "%");
+        }
+
+        if (StringUtils.isNotBlank(value.getUsername())) {
+            sb.append(" and user_name like :userName ");
+            map.addValue("userName", "%" + value.getUsername() + "%");
+        }
+
+        if (StringUtils.isNotBlank(value.getIpAddress())) {
+            sb.append(" and ip_address = :ipAddress ");
+            map.addValue("ipAddress", value.getIpAddress());
+        }
+
+        if (value.getExpiredAt() != null) {
+            sb.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", value.getExpiredAt());
+        }
+        return sb.length() > length;
+    }
+
+    private boolean appendHistoryFilter(
+            StringBuilder sb, MapSqlParameterSource map, String username, String clientId, OauthAccessTokenHistory value) {
+        int length = sb.length();
+        if (StringUtils.isNotBlank(username)) {
+            sb.append(" and user_name = :userName ");
+            map.addValue("userName", username);
+        }
+
+        if (StringUtils.isNotBlank(clientId)) {
+            sb.append(" and client_id = :clientId ");
+            map.addValue("clientId", clientId);
+        } else if (StringUtils.isNotBlank(value.getClientId())) {
+            sb.append(" and client_id like :clientId ");
+            map.addValue("clientId", "%" + value.getClientId() + "%");
+        }
+
+        if (value.getLogout() != null) {
+            sb.append(" and is_logout = :isLogout ");
+            map.addValue("isLogout", value.getLogout());
+        }
+
+        if (StringUtils.isNotBlank(value.getIpAddress())) {
+            sb.append(" and ip_address like :ipAddress ");
+            map.addValue("ipAddress", "%" + value.getIpAddress() + "%");
+        }
+
+        if (value.getExpiredAt() != null) {
+            sb.append(" and expires_at <= :expiredAt ");
+            map.addValue("expiredAt", value.getExpiredAt());
+        }
+        return sb.length() > length;
+    }
+
+    /**
+     * row comparison after the cursor and order by the same key, one more row than the page to know there is a next page
+     */
+    private void appendKeyset(
+            StringBuilder sb, MapSqlParameterSource map, String cursor, boolean ascending, String idColumn, int length) {
+        String direction = ascending ? "asc" : "desc";
+        if (StringUtils.isNotBlank(cursor)) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            sb.append(" and (login_at, ").append(idColumn).append(ascending ? ") > " : ") < ")
+                    .append("(:cursorLoginAt, :cursorId) ");
+            map.addValue("cursorLoginAt", position.loginAt);
+            map.addValue("cursorId", position.id);
+        }
+        sb.append(" order by login_at ").append(direction).append(", ").append(idColumn).append(" ").append(direction);
+        sb.append(" limit :limit ");
+        map.addValue("limit", length + 1);
+    }
+
+    private <T> KeysetPage<T> keysetPage(List<T> list, KeysetCursor last, int length) {
+        if (list.size() > length) {
+            return new KeysetPage<>(new ArrayList<>(list.subList(0, length)), last.encode(), null, false);
+        }
+        return new KeysetPage<>(list, null, null, false);
+    }
+
+    private String deserializeAccessTokenValueOrNull(byte[] token) {
+        try {
+            return this.deserializeAccessTokenValue(token);
+        } catch (IllegalArgumentException iae) {
+            console.warn("can't decode stored access token", iae);
+            return null;
+        }
+    }
+
+    /**
+     * exact count is {@code count(*)}, otherwise {@code reltuples} of the table (and its partitions) when not filtered
+     * or row estimate of the query plan
+     */
+    private long count(StringBuilder from, MapSqlParameterSource map, boolean filtered, boolean exact, String table) {
+        if (exact) {
+            Long rows = this.namedJdbcTemplate.queryForObject("/* " + table + ".count */ select count(*) " + from, map, Long.class);
+            return rows != null ? rows : 0L;
+        }
+
+        if (!filtered) {
+            map.addValue("table", table);
+            Long rows = this.namedJdbcTemplate.queryForObject("/* " + table + ".countEstimate */ select coalesce(sum(greatest(reltuples, 0)), 0)::bigint\n" +
+                    "from pg_class\n" +
+                    "where oid = cast(:table as regclass)\n" +
+                    "   or oid in (select inhrelid from pg_inherits where inhparent = cast(:table as regclass))", map, Long.class);
+            return rows != null ? rows : 0L;
+        }
+
+        String plan = this.namedJdbcTemplate.queryForObject("/* " + table + ".countPlan */ explain (format json) select 1 " + from, map, String.class);
+        try {
+            return PLAN_READER.readTree(plan).get(0).get("Plan").get("Plan Rows").asLong();
+        } catch (IOException | NullPointerException e) {
+            console.warn("can't read row estimate from query plan {}", plan, e);
+            return 0L;
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package com.tabeldata.oauth.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * position of keyset pagination ordered by {@code (login_at, id)}, passed to client as opaque url-safe string.
+ */
+final class KeysetCursor {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = ":";
+
+    final Timestamp loginAt;
+    final String id;
+
+    KeysetCursor(Timestamp loginAt, String id) {
+        this.loginAt = loginAt;
+        this.id = id;
+    }
+
+    String encode() {
+        String value = VERSION + SEPARATOR +
+                Math.floorDiv(this.loginAt.getTime(), 1000L) + SEPARATOR +
+                this.loginAt.getNanos() + SEPARATOR +
+                this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when value isn't a cursor produced by {@link #encode()}
+     */
+    static KeysetCursor decode(String value) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8).split(SEPARATOR, 4);
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("invalid cursor", iae);
+        }
+        if (parts.length != 4 || !VERSION.equals(parts[0]) || parts[3].isEmpty()) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+
+        try {
+            Timestamp loginAt = new Timestamp(Long.parseLong(parts[1]) * 1000L);
+            loginAt.setNanos(Integer.parseInt(parts[2]));
+            return new KeysetCursor(loginAt, parts[3]);
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("invalid cursor", iae);
+        }
+    }
+}
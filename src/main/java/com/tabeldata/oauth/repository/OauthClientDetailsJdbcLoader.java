@@ -1,12 +1,19 @@
 package com.tabeldata.oauth.repository;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.tabeldata.oauth.models.OauthApplication;
 import com.tabeldata.oauth.models.OauthClientDetails;
 import com.tabeldata.oauth.models.OauthGrantType;
 import com.tabeldata.oauth.models.OauthScope;
 import com.tabeldata.oauth.service.OauthClientDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -15,7 +22,10 @@ import org.springframework.security.oauth2.provider.ClientDetailsService;
 import org.springframework.security.oauth2.provider.ClientRegistrationException;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,17 +34,90 @@ public class OauthClientDetailsJdbcLoader implements ClientDetailsService {
 
     @Autowired
     private OauthClientDetailsService service;
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${oauth.client-details.cache.enabled:true}")
+    private boolean cacheEnabled;
+    @Value("${oauth.client-details.cache.maximum-size:1000}")
+    private long cacheMaximumSize;
+    @Value("${oauth.client-details.cache.expire-after-write-seconds:300}")
+    private long cacheExpireAfterWriteSeconds;
+
+    private Cache<String, ClientDetails> cache;
+
+    @PostConstruct
+    public void initCache() {
+        if (!this.cacheEnabled) {
+            log.info("client details cache disabled, every lookup goes to database");
+            return;
+        }
 
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(this.cacheMaximumSize)
+                .expireAfterWrite(this.cacheExpireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        if (this.meterRegistry != null) {
+            GuavaCacheMetrics.monitor(this.meterRegistry, this.cache, "oauth.client-details");
+        }
+    }
 
+    /**
+     * read through cache, concurrent miss of the same client load it once. Only found client is cached
+     * so unknown client_id always hit the database
+     *
+     * @param clientId client name
+     * @return client details
+     * @throws ClientRegistrationException when client not found
+     */
     @Override
     public ClientDetails loadClientByClientId(String clientId) throws ClientRegistrationException {
+        if (this.cache == null) {
+            return loadFromDatabase(clientId);
+        }
+
+        try {
+            return this.cache.get(clientId, () -> loadFromDatabase(clientId));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ClientRegistrationException("can't load client " + clientId, cause);
+        }
+    }
+
+    /**
+     * remove cached client, call it after client details, grant types, scopes, redirect uris or applications changed
+     *
+     * @param clientId client name
+     */
+    public void evict(String clientId) {
+        if (this.cache != null) {
+            this.cache.invalidate(clientId);
+        }
+    }
+
+    public void evictAll() {
+        if (this.cache != null) {
+            this.cache.invalidateAll();
+        }
+    }
+
+    /**
+     * hit, miss and eviction counters of client details cache
+     *
+     * @return stats or {@link CacheStats} with zero value when cache disabled
+     */
+    public CacheStats stats() {
+        return this.cache != null ? this.cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    private ClientDetails loadFromDatabase(String clientId) throws ClientRegistrationException {
         OauthClientDetails client;
         try {
-            client = this.service.findByClientId(clientId);
-            client.setApplications(service.findApplicationByClientId(clientId));
-            client.setOauthGrantTypes(service.findGrantTypeByClientId(clientId));
-            client.setRedirectUrls(service.findRedirectUrlsByClientId(clientId));
-            client.setOauthScopes(service.findScopeByClientId(clientId));
+            client = this.service.findAggregateByClientId(clientId);
         } catch (EmptyResultDataAccessException erde) {
             log.error("username not found", erde);
             throw new UsernameNotFoundException("client_id not found!", erde);
@@ -43,7 +126,10 @@ public class OauthClientDetailsJdbcLoader implements ClientDetailsService {
         return new OauthClientDetailsModel(client);
     }
 
-    private class OauthClientDetailsModel implements ClientDetails {
+    /**
+     * client details view of {@link OauthClientDetails}, sets are built on every call
+     */
+    public static class OauthClientDetailsModel implements ClientDetails {
         private final OauthClientDetails client;
 
         public OauthClientDetailsModel(OauthClientDetails client) {
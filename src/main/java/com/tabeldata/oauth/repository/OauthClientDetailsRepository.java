@@ -1,5 +1,7 @@
 package com.tabeldata.oauth.repository;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -10,15 +12,27 @@ import com.tabeldata.oauth.models.OauthClientDetails;
 import com.tabeldata.oauth.models.OauthGrantType;
 import com.tabeldata.oauth.models.OauthScope;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class OauthClientDetailsRepository implements Serializable {
 
+    private static final TypeReference<List<Map<String, Object>>> JSON_ROWS = new TypeReference<List<Map<String, Object>>>() {
+    };
+
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
 
     /**
      * get application by client detail id
@@ -28,7 +42,7 @@ public class OauthClientDetailsRepository implements Serializable {
     public List<OauthApplication> getApplicationByClientId(String clientId) {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("clientName", clientId);
-        StringBuilder query = new StringBuilder("select client_app.id               as application_id,\n" +
+        StringBuilder query = new StringBuilder("/* client.applications */ select client_app.id               as application_id,\n" +
                 "       client_app.name             as application_name,\n" +
                 "       client_app.created_by       as created_by,\n" +
                 "       client_app.created_date     as created_date,\n" +
@@ -59,7 +73,7 @@ public class OauthClientDetailsRepository implements Serializable {
     public List<OauthGrantType> getGrantTypeByClientId(String clientId) {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("clientId", clientId);
-        StringBuilder query = new StringBuilder("select grant_type.id as grant_id, grant_type.name as grant_name, grant_type.description as grant_description\n" +
+        StringBuilder query = new StringBuilder("/* client.grantTypes */ select grant_type.id as grant_id, grant_type.name as grant_name, grant_type.description as grant_description\n" +
                 "from oauth.grant_types grant_type\n" +
                 "       join resource.client_detail_grant_types res_grant_type on grant_type.id = res_grant_type.grant_type\n" +
                 "       join resource.client_details res on res_grant_type.client_id = res.id\n" +
@@ -75,7 +89,7 @@ public class OauthClientDetailsRepository implements Serializable {
     public List<String> getRedirectUrlsByClientId(String clientId) {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("clientId", clientId);
-        StringBuilder query = new StringBuilder("select url.id as url_id, url.redirect_uri as redirect_uri\n" +
+        StringBuilder query = new StringBuilder("/* client.redirectUrls */ select url.id as url_id, url.redirect_uri as redirect_uri\n" +
                 "from resource.client_detail_redirect_uris url\n" +
                 "       join resource.client_details app on url.client_id = app.id\n" +
                 "where app.name = :clientId");
@@ -85,7 +99,7 @@ public class OauthClientDetailsRepository implements Serializable {
     public List<OauthScope> getScopesByClientId(String clientId) {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("clientId", clientId);
-        StringBuilder query = new StringBuilder("select scope.id               as scope_id,\n" +
+        StringBuilder query = new StringBuilder("/* client.scopes */ select scope.id               as scope_id,\n" +
                 "       scope.name             as scope_name,\n" +
                 "       scope.created_by       as created_by,\n" +
                 "       scope.created_date     as created_date,\n" +
@@ -108,7 +122,7 @@ public class OauthClientDetailsRepository implements Serializable {
     public OauthClientDetails getResourceByClientId(String clientId) throws EmptyResultDataAccessException {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("clientId", clientId);
-        StringBuilder query = new StringBuilder("select id,\n" +
+        StringBuilder query = new StringBuilder("/* client.resource */ select id,\n" +
                 "       name,\n" +
                 "       password,\n" +
                 "       is_auto_approve,\n" +
@@ -137,4 +151,129 @@ public class OauthClientDetailsRepository implements Serializable {
         ));
     }
 
+    /**
+     * get client details with applications, grant types, redirect uris and scopes in one round trip,
+     * the result is equal with {@link #getResourceByClientId(String)} filled by the other four queries
+     *
+     * @param clientId client name
+     * @return client details aggregate
+     * @throws EmptyResultDataAccessException when client not found
+     */
+    public OauthClientDetails getClientDetailsAggregateByClientId(String clientId) throws EmptyResultDataAccessException {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("clientId", clientId);
+        //language=PostgreSQL
+        StringBuilder query = new StringBuilder("/* client.aggregate */ select client.id,\n" +
+                "       client.name,\n" +
+                "       client.password,\n" +
+                "       client.is_auto_approve,\n" +
+                "       client.token_expired_in_second,\n" +
+                "       client.created_by,\n" +
+                "       client.created_date,\n" +
+                "       client.last_update_by,\n" +
+                "       client.last_update_date,\n" +
+                "       (select coalesce(json_agg(json_build_object(\n" +
+                "                   'id', client_app.id,\n" +
+                "                   'name', client_app.name,\n" +
+                "                   'createdBy', client_app.created_by,\n" +
+                "                   'createdDate', to_char(client_app.created_date, 'YYYY-MM-DD HH24:MI:SS.US'),\n" +
+                "                   'lastUpdateBy', client_app.last_update_by,\n" +
+                "                   'lastUpdateDate', to_char(client_app.last_update_date, 'YYYY-MM-DD HH24:MI:SS.US'))), '[]')\n" +
+                "        from resource.client_detail_applications apps\n" +
+                "                 join resource.client_details client_app on apps.client_detail_id = client_app.id\n" +
+                "        where apps.app_id = (\n" +
+                "            select apps2.app_id\n" +
+                "            from resource.client_detail_applications apps2\n" +
+                "            where apps2.client_detail_id = client.id\n" +
+                "            limit 1\n" +
+                "        ))                          as applications,\n" +
+                "       (select coalesce(json_agg(json_build_object(\n" +
+                "                   'id', grant_type.id,\n" +
+                "                   'name', grant_type.name,\n" +
+                "                   'description', grant_type.description)), '[]')\n" +
+                "        from oauth.grant_types grant_type\n" +
+                "                 join resource.client_detail_grant_types res_grant_type on grant_type.id = res_grant_type.grant_type\n" +
+                "        where res_grant_type.client_id = client.id) as grant_types,\n" +
+                "       array(select url.redirect_uri\n" +
+                "             from resource.client_detail_redirect_uris url\n" +
+                "             where url.client_id = client.id) as redirect_uris,\n" +
+                "       (select coalesce(json_agg(json_build_object(\n" +
+                "                   'id', scope.id,\n" +
+                "                   'name', scope.name,\n" +
+                "                   'createdBy', scope.created_by,\n" +
+                "                   'createdDate', to_char(scope.created_date, 'YYYY-MM-DD HH24:MI:SS.US'),\n" +
+                "                   'lastUpdateBy', scope.last_update_by,\n" +
+                "                   'lastUpdateDate', to_char(scope.last_update_date, 'YYYY-MM-DD HH24:MI:SS.US'))), '[]')\n" +
+                "        from oauth.client_scopes scope\n" +
+                "                 join resource.client_detail_scopes res_scope on scope.id = res_scope.scope_id\n" +
+                "        where res_scope.client_id = client.id) as scopes\n" +
+                "from resource.client_details client\n" +
+                "where client.name = :clientId");
+        return this.jdbcTemplate.queryForObject(query.toString(), params, (resultSet, i) -> {
+            OauthClientDetails client = new OauthClientDetails(
+                    resultSet.getString("id"),
+                    resultSet.getString("name"),
+                    resultSet.getString("password"),
+                    resultSet.getBoolean("is_auto_approve"),
+                    resultSet.getInt("token_expired_in_second"),
+                    resultSet.getString("created_by"),
+                    resultSet.getTimestamp("created_date"),
+                    resultSet.getString("last_update_by"),
+                    resultSet.getTimestamp("last_update_date"),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>()
+            );
+            for (Map<String, Object> row : readJsonRows(resultSet, "applications")) {
+                client.getApplications().add(new OauthApplication(
+                        (String) row.get("id"),
+                        (String) row.get("name"),
+                        (String) row.get("createdBy"),
+                        toTimestamp(row.get("createdDate")),
+                        (String) row.get("lastUpdateBy"),
+                        toTimestamp(row.get("lastUpdateDate"))
+                ));
+            }
+            for (Map<String, Object> row : readJsonRows(resultSet, "grant_types")) {
+                client.getOauthGrantTypes().add(new OauthGrantType(
+                        ((Number) row.get("id")).intValue(),
+                        (String) row.get("name"),
+                        (String) row.get("description")
+                ));
+            }
+            Array redirectUris = resultSet.getArray("redirect_uris");
+            client.getRedirectUrls().addAll(Arrays.asList((String[]) redirectUris.getArray()));
+            redirectUris.free();
+            for (Map<String, Object> row : readJsonRows(resultSet, "scopes")) {
+                client.getOauthScopes().add(new OauthScope(
+                        Integer.valueOf(row.get("id").toString()),
+                        (String) row.get("name"),
+                        (String) row.get("createdBy"),
+                        toTimestamp(row.get("createdDate")),
+                        (String) row.get("lastUpdateBy"),
+                        toTimestamp(row.get("lastUpdateDate"))
+                ));
+            }
+            return client;
+        });
+    }
+
+    private List<Map<String, Object>> readJsonRows(ResultSet resultSet, String column) throws SQLException {
+        try {
+            return this.objectMapper.readValue(resultSet.getString(column), JSON_ROWS);
+        } catch (IOException e) {
+            throw new SQLException("can't read json column " + column, e);
+        }
+    }
+
+    /**
+     * timestamp formatted by {@code to_char(..., 'YYYY-MM-DD HH24:MI:SS.US')}, parsed in the same time zone as
+     * {@link ResultSet#getTimestamp(String)} so both loaders produce equal value
+     */
+    private static Timestamp toTimestamp(Object value) {
+        return value != null ? Timestamp.valueOf(value.toString()) : null;
+    }
+
 }
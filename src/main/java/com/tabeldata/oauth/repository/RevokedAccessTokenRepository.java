@@ -0,0 +1,43 @@
+package com.tabeldata.oauth.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+@Repository
+public class RevokedAccessTokenRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param jti       jwt id of access token
+     * @param expiresAt expiration of access token, null for token which never expired
+     */
+    public void insert(String jti, Date expiresAt) {
+        this.jdbcTemplate.update("/* revoked.insert */ insert into oauth.revoked_access_token (jti, expires_at)\n" +
+                        "values (?, ?)\n" +
+                        "on conflict (jti) do nothing",
+                jti,
+                expiresAt != null ? new Timestamp(expiresAt.getTime()) : null);
+    }
+
+    /**
+     * revoked access token which not yet expired, revoked at or after {@code since}
+     *
+     * @param since   lower bound of {@code revoked_at}
+     * @param handler called with columns {@code jti, expires_at, revoked_at}
+     */
+    public void findRevokedSince(Timestamp since, RowCallbackHandler handler) {
+        this.jdbcTemplate.query("/* revoked.select */ select jti, expires_at, revoked_at\n" +
+                        "from oauth.revoked_access_token\n" +
+                        "where revoked_at >= ?\n" +
+                        "  and (expires_at is null or expires_at > now())",
+                handler,
+                since);
+    }
+}
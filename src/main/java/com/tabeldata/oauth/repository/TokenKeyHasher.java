@@ -0,0 +1,107 @@
+package com.tabeldata.oauth.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * lowercase hex digest of token value, used as {@code token_id} of token tables.
+ * <p>
+ * Digest and buffers are reused per thread, so hashing ASCII value (uuid or jwt) allocate only the result string.
+ * {@code MD5} result is the same as {@code String.format("%032x", new BigInteger(1, md5(value)))}.
+ */
+public class TokenKeyHasher {
+
+    public static final String MD5 = "MD5";
+    public static final String SHA_256 = "SHA-256";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int INITIAL_INPUT_SIZE = 1024;
+    private static final int MAXIMUM_INPUT_SIZE = 64 * 1024;
+
+    private final String algorithm;
+    private final ThreadLocal<State> states;
+
+    public TokenKeyHasher(String algorithm) {
+        this.algorithm = algorithm;
+        newDigest(algorithm);
+        this.states = ThreadLocal.withInitial(() -> new State(newDigest(algorithm)));
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String hash(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        State state = this.states.get();
+        MessageDigest digest = state.digest;
+        if (!state.updateAscii(value)) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] output = state.output;
+        try {
+            digest.digest(output, 0, output.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(algorithm + " digest failed", e);
+        }
+
+        char[] hex = state.hex;
+        for (int i = 0; i < output.length; i++) {
+            int b = output[i] & 0xFF;
+            hex[i * 2] = HEX_DIGITS[b >>> 4];
+            hex[i * 2 + 1] = HEX_DIGITS[b & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " algorithm not available", e);
+        }
+    }
+
+    private static final class State {
+        private final MessageDigest digest;
+        private final byte[] output;
+        private final char[] hex;
+        private byte[] input = new byte[INITIAL_INPUT_SIZE];
+
+        private State(MessageDigest digest) {
+            this.digest = digest;
+            this.output = new byte[digest.getDigestLength()];
+            this.hex = new char[this.output.length * 2];
+        }
+
+        /**
+         * @return false when value is not ASCII or too long, nothing written into digest
+         */
+        private boolean updateAscii(String value) {
+            int length = value.length();
+            if (length > this.input.length) {
+                if (length > MAXIMUM_INPUT_SIZE) {
+                    return false;
+                }
+                this.input = new byte[Integer.highestOneBit(length - 1) << 1];
+            }
+
+            byte[] buffer = this.input;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    return false;
+                }
+                buffer[i] = (byte) c;
+            }
+            this.digest.update(buffer, 0, length);
+            return true;
+        }
+    }
+}
@@ -3,8 +3,10 @@ package com.tabeldata.oauth.service;
 import com.maryanto.dimas.plugins.web.commons.ui.datatables.DataTablesRequest;
 import com.maryanto.dimas.plugins.web.commons.ui.datatables.DataTablesResponse;
 import com.maryanto.dimas.plugins.web.commons.ui.datatables.service.ServiceDataTablesPattern;
+import com.tabeldata.oauth.models.KeysetPage;
 import com.tabeldata.oauth.models.OauthAccessTokenExtended;
 import com.tabeldata.oauth.models.OauthAccessTokenHistory;
+import com.tabeldata.oauth.models.OauthStoredAccessToken;
 import com.tabeldata.oauth.repository.JdbcTokenStoreCustomizer;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -36,6 +38,7 @@ public class DefaultTokenService implements
     private ClientDetailsService clientDetailsService;
     private TokenEnhancer accessTokenEnhancer;
     private AuthenticationManager authenticationManager;
+    private RevokedAccessTokenService revokedAccessTokens;
 
     public DefaultTokenService(
             JdbcTokenStoreCustomizer tokenStore,
@@ -58,7 +61,6 @@ public class DefaultTokenService implements
         OAuth2RefreshToken refreshToken = null;
         if (existingAccessToken != null) {
             if (!existingAccessToken.isExpired()) {
-                this.tokenStore.storeAccessToken(existingAccessToken, authentication);
                 return existingAccessToken;
             }
 
@@ -171,14 +173,14 @@ public class DefaultTokenService implements
     }
 
     public OAuth2Authentication loadAuthentication(String accessTokenValue) throws AuthenticationException, InvalidTokenException {
-        OAuth2AccessToken accessToken = this.tokenStore.readAccessToken(accessTokenValue);
-        if (accessToken == null) {
+        OauthStoredAccessToken stored = this.tokenStore.readAccessTokenWithAuthentication(accessTokenValue);
+        if (stored == null) {
             throw new InvalidTokenException("Invalid access token: " + accessTokenValue);
-        } else if (accessToken.isExpired()) {
-            this.tokenStore.removeAccessToken(accessToken);
+        } else if (stored.getAccessToken().isExpired()) {
+            this.tokenStore.removeAccessToken(stored.getAccessToken());
             throw new InvalidTokenException("Access token expired: " + accessTokenValue);
         } else {
-            OAuth2Authentication result = this.tokenStore.readAuthentication(accessToken);
+            OAuth2Authentication result = stored.getAuthentication();
             if (result == null) {
                 throw new InvalidTokenException("Invalid access token: " + accessTokenValue);
             } else {
@@ -198,7 +200,8 @@ public class DefaultTokenService implements
     }
 
     public String getClientId(String tokenValue) {
-        OAuth2Authentication authentication = this.tokenStore.readAuthentication(tokenValue);
+        OauthStoredAccessToken stored = this.tokenStore.readAccessTokenWithAuthentication(tokenValue);
+        OAuth2Authentication authentication = stored != null ? stored.getAuthentication() : null;
         if (authentication == null) {
             throw new InvalidTokenException("Invalid access token: " + tokenValue);
         } else {
@@ -212,29 +215,37 @@ public class DefaultTokenService implements
     }
 
     public boolean revokeToken(String tokenValue) {
-        OAuth2AccessToken accessToken = this.tokenStore.readAccessToken(tokenValue);
-        if (accessToken == null) {
+        OauthStoredAccessToken stored = this.tokenStore.readAccessTokenWithAuthentication(tokenValue);
+        if (stored == null) {
             return false;
         } else {
+            OAuth2AccessToken accessToken = stored.getAccessToken();
             if (accessToken.getRefreshToken() != null) {
                 this.tokenStore.removeRefreshToken(accessToken.getRefreshToken());
             }
 
             this.tokenStore.removeAccessToken(accessToken);
+            if (this.revokedAccessTokens != null) {
+                this.revokedAccessTokens.revoke(accessToken);
+            }
             return true;
         }
     }
 
     public boolean revokeTokenByUsername(String tokenValue, String username) {
-        OAuth2AccessToken accessToken = this.tokenStore.readAccessToken(tokenValue);
-        if (accessToken == null) {
+        OauthStoredAccessToken stored = this.tokenStore.readAccessTokenWithAuthentication(tokenValue);
+        if (stored == null) {
             return false;
         } else {
+            OAuth2AccessToken accessToken = stored.getAccessToken();
             if (accessToken.getRefreshToken() != null) {
                 this.tokenStore.removeRefreshToken(accessToken.getRefreshToken());
             }
 
             this.tokenStore.removeAccessToken(accessToken, username);
+            if (this.revokedAccessTokens != null) {
+                this.revokedAccessTokens.revoke(accessToken);
+            }
             return true;
         }
     }
@@ -310,6 +321,13 @@ public class DefaultTokenService implements
         this.reuseRefreshToken = reuseRefreshToken;
     }
 
+    /**
+     * revoked token also written to deny-list, so it's rejected by stateless jwt validation
+     */
+    public void setRevokedAccessTokens(RevokedAccessTokenService revokedAccessTokens) {
+        this.revokedAccessTokens = revokedAccessTokens;
+    }
+
     @Override
     public DataTablesResponse<OauthAccessTokenExtended> datatables(DataTablesRequest<OauthAccessTokenExtended> params) {
         List<OauthAccessTokenExtended> list = tokenStore.datatables(params);
@@ -335,4 +353,20 @@ public class DefaultTokenService implements
         Long rowCount = tokenStore.historyByClientIdDatatables(username, params.getValue());
         return new DataTablesResponse<>(list, params.getDraw(), rowCount, rowCount);
     }
+
+    public KeysetPage<OauthAccessTokenExtended> currentTokenPage(
+            OauthAccessTokenExtended value, String cursor, int length, boolean ascending, boolean exactTotal) {
+        KeysetPage<OauthAccessTokenExtended> page = tokenStore.currentTokenPage(value, cursor, length, ascending);
+        page.setTotal(tokenStore.currentTokenCount(value, exactTotal));
+        page.setExactTotal(exactTotal);
+        return page;
+    }
+
+    public KeysetPage<OauthAccessTokenHistory> historyPage(
+            String username, String clientId, OauthAccessTokenHistory value, String cursor, int length, boolean ascending, boolean exactTotal) {
+        KeysetPage<OauthAccessTokenHistory> page = tokenStore.historyPage(username, clientId, value, cursor, length, ascending);
+        page.setTotal(tokenStore.historyCount(username, clientId, value, exactTotal));
+        page.setExactTotal(exactTotal);
+        return page;
+    }
 }
@@ -0,0 +1,48 @@
+package com.tabeldata.oauth.service;
+
+import com.tabeldata.oauth.JwtAccessTokenCustomConverter;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import java.util.Map;
+
+/**
+ * validate access token by jwt signature and expiry only, without reading token store.
+ * Revoked token is rejected by {@link RevokedAccessTokenService}.
+ */
+public class JwtResourceServerTokenServices implements ResourceServerTokenServices {
+
+    private final JwtAccessTokenCustomConverter accessTokenConverter;
+    private final RevokedAccessTokenService revokedAccessTokens;
+
+    public JwtResourceServerTokenServices(
+            JwtAccessTokenCustomConverter accessTokenConverter,
+            RevokedAccessTokenService revokedAccessTokens) {
+        this.accessTokenConverter = accessTokenConverter;
+        this.revokedAccessTokens = revokedAccessTokens;
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        Map<String, Object> claims = this.accessTokenConverter.decodeClaims(accessToken);
+        Object exp = claims.get(AccessTokenConverter.EXP);
+        if (exp instanceof Number && ((Number) exp).longValue() * 1000L <= System.currentTimeMillis()) {
+            throw new InvalidTokenException("Access token expired: " + accessToken);
+        }
+
+        Object jti = claims.get(AccessTokenConverter.JTI);
+        if (jti != null && this.revokedAccessTokens.isRevoked(jti.toString())) {
+            throw new InvalidTokenException("Access token revoked: " + accessToken);
+        }
+        return this.accessTokenConverter.extractAuthentication(claims);
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return this.accessTokenConverter.extractAccessToken(accessToken, this.accessTokenConverter.decodeClaims(accessToken));
+    }
+}
@@ -22,6 +22,10 @@ public class OauthClientDetailsService implements Serializable {
         return repository.getResourceByClientId(clientId);
     }
 
+    public OauthClientDetails findAggregateByClientId(String clientId) throws EmptyResultDataAccessException {
+        return repository.getClientDetailsAggregateByClientId(clientId);
+    }
+
     public List<OauthScope> findScopeByClientId(String clientId) {
         return repository.getScopesByClientId(clientId);
     }
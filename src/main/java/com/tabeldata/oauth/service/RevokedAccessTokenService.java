@@ -0,0 +1,121 @@
+package com.tabeldata.oauth.service;
+
+import com.tabeldata.oauth.repository.RevokedAccessTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * in-memory deny-list of revoked jwt id, used by stateless validation ({@code oauth.resource-server.validation=jwt}).
+ * <p>
+ * Revoke on this node is visible immediately, revoke on other node is visible after next refresh.
+ * Refresh run on its own thread, so a long scheduled job (reaper, codec migration) can't delay it.
+ * Entry is dropped once the token itself expired, so size is bounded by token revoked within one token lifetime.
+ */
+@Slf4j
+@Service
+public class RevokedAccessTokenService {
+
+    /**
+     * row committed late still have {@code revoked_at} of its transaction start, so read a bit before last seen
+     */
+    private static final long REFRESH_OVERLAP_MILLIS = 30_000L;
+
+    @Autowired
+    private RevokedAccessTokenRepository repository;
+
+    @Value("${oauth.resource-server.validation:token-store}")
+    private String validation;
+    @Value("${oauth.resource-server.revoked-token.refresh-ms:5000}")
+    private long refreshMillis;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile long lastRevokedAt = 0L;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!this.isEnabled()) {
+            return;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "revoked-access-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::refresh, 0L, this.refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        Long expiresAt = this.revoked.get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * nothing to record with token store validation, removed token is already gone from the store
+     */
+    public void revoke(OAuth2AccessToken accessToken) {
+        if (!this.isEnabled()) {
+            return;
+        }
+
+        Object jti = accessToken.getAdditionalInformation().get(AccessTokenConverter.JTI);
+        if (jti == null) {
+            return;
+        }
+
+        Date expiration = accessToken.getExpiration();
+        this.revoked.put(jti.toString(), expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+        this.repository.insert(jti.toString(), expiration);
+    }
+
+    public int size() {
+        return this.revoked.size();
+    }
+
+    private boolean isEnabled() {
+        return "jwt".equalsIgnoreCase(this.validation);
+    }
+
+    public void refresh() {
+        if (!this.isEnabled()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        this.revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+        long since = Math.max(0L, this.lastRevokedAt - REFRESH_OVERLAP_MILLIS);
+        try {
+            this.repository.findRevokedSince(new Timestamp(since), rs -> {
+                Timestamp expiresAt = rs.getTimestamp("expires_at");
+                this.revoked.put(rs.getString("jti"), expiresAt != null ? expiresAt.getTime() : Long.MAX_VALUE);
+                this.lastRevokedAt = Math.max(this.lastRevokedAt, rs.getTimestamp("revoked_at").getTime());
+            });
+        } catch (RuntimeException e) {
+            // an exception escaping would cancel the periodic refresh for good
+            log.warn("can't refresh revoked access token, keep {} known entries", this.revoked.size(), e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- create table revoked access token, deny-list of jwt id for stateless validation
+create table oauth.revoked_access_token (
+  jti        character varying(255) not null primary key,
+  expires_at timestamp,
+  revoked_at timestamp              not null default now()
+);
+
+create index idx_revoked_access_token_revoked_at
+  on oauth.revoked_access_token (revoked_at);
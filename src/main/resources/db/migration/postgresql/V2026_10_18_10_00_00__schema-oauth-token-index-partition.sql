@@ -0,0 +1,102 @@
+-- access token lookup by token, by user (and client), by client and by refresh token
+create index idx_access_token_token_id
+  on oauth.access_token (token_id);
+
+create index idx_access_token_user_name_client_id
+  on oauth.access_token (user_name, client_id);
+
+create index idx_access_token_client_id
+  on oauth.access_token (client_id);
+
+create index idx_access_token_refresh_token
+  on oauth.access_token (refresh_token);
+
+-- refresh token key, remove empty and duplicated row (keep the last stored) first
+delete
+from oauth.refresh_token
+where token_id is null;
+
+delete
+from oauth.refresh_token old
+  using oauth.refresh_token newer
+where old.token_id = newer.token_id
+  and old.ctid < newer.ctid;
+
+alter table oauth.refresh_token
+  alter column token_id set not null,
+  add constraint uk_refresh_token_token_id unique (token_id);
+
+-- history access token partitioned monthly by login_at, partition inherit oauth.history_access_token
+CREATE OR REPLACE FUNCTION oauth.create_history_access_token_partition(month timestamp)
+  RETURNS text AS $$
+DECLARE
+  start_at  timestamp := date_trunc('month', month);
+  end_at    timestamp := date_trunc('month', month) + interval '1 month';
+  partition text := 'history_access_token_' || to_char(month, 'YYYY_MM');
+BEGIN
+  PERFORM pg_advisory_xact_lock(hashtext('oauth.' || partition));
+  IF to_regclass('oauth.' || partition) IS NOT NULL THEN
+    RETURN partition;
+  END IF;
+
+  EXECUTE format('create table oauth.%I (
+                    primary key (id),
+                    check (login_at >= %L and login_at < %L)
+                  ) inherits (oauth.history_access_token)', partition, start_at, end_at);
+  EXECUTE format('create index %I on oauth.%I (access_id)', 'idx_' || partition || '_access_id', partition);
+  EXECUTE format('create index %I on oauth.%I (user_name)', 'idx_' || partition || '_user_name', partition);
+  EXECUTE format('create index %I on oauth.%I (client_id)', 'idx_' || partition || '_client_id', partition);
+  EXECUTE format('create index %I on oauth.%I (login_at)', 'idx_' || partition || '_login_at', partition);
+  RETURN partition;
+END; $$
+LANGUAGE 'plpgsql';
+
+-- create partition of current month and the next months_ahead months
+CREATE OR REPLACE FUNCTION oauth.create_history_access_token_partitions(months_ahead integer)
+  RETURNS integer AS $$
+DECLARE
+  month timestamp;
+  total integer := 0;
+BEGIN
+  FOR month IN (select generate_series(date_trunc('month', localtimestamp),
+                                       date_trunc('month', localtimestamp) + months_ahead * interval '1 month',
+                                       interval '1 month'))
+  LOOP
+    PERFORM oauth.create_history_access_token_partition(month);
+    total := total + 1;
+  END LOOP;
+  RETURN total;
+END; $$
+LANGUAGE 'plpgsql';
+
+-- route insert into partition of the login_at month, partition is created when missing
+CREATE OR REPLACE FUNCTION oauth.history_access_token_insert()
+  RETURNS trigger AS $$
+DECLARE
+  partition text := 'history_access_token_' || to_char(new.login_at, 'YYYY_MM');
+BEGIN
+  IF to_regclass('oauth.' || partition) IS NULL THEN
+    partition := oauth.create_history_access_token_partition(new.login_at);
+  END IF;
+
+  EXECUTE format('insert into oauth.%I select ($1).*', partition) USING new;
+  RETURN NULL;
+END; $$
+LANGUAGE 'plpgsql';
+
+create trigger trg_history_access_token_insert
+  before insert
+  on oauth.history_access_token
+  for each row execute procedure oauth.history_access_token_insert();
+
+-- move existing history into partitions
+with moved as (
+  delete
+  from only oauth.history_access_token
+  returning *
+)
+insert into oauth.history_access_token
+select *
+from moved;
+
+select oauth.create_history_access_token_partitions(3);
@@ -0,0 +1,67 @@
+-- expiry of access token as column, null for token which never expired
+alter table oauth.access_token
+  add column expires_at timestamp;
+
+alter table oauth.history_access_token
+  add column expires_at timestamp;
+
+-- existing token expired at login_at plus token validity of its client (default 43200 seconds),
+-- the same validity used when the token issued
+update oauth.access_token token
+set expires_at = token.login_at + coalesce(client.token_expired_in_second, 43200) * interval '1 second'
+from oauth.access_token self
+       left join resource.client_details client on client.name = self.client_id
+where self.auth_id = token.auth_id
+  and coalesce(client.token_expired_in_second, 43200) > 0;
+
+update oauth.history_access_token history
+set expires_at = history.login_at + coalesce(client.token_expired_in_second, 43200) * interval '1 second'
+from oauth.history_access_token self
+       left join resource.client_details client on client.name = self.client_id
+where self.id = history.id
+  and coalesce(client.token_expired_in_second, 43200) > 0;
+
+create index idx_access_token_expires_at
+  on oauth.access_token (expires_at);
+
+-- index expires_at of existing and future history partition
+DO $$
+DECLARE
+  partition text;
+BEGIN
+  FOR partition IN (select child.relname
+                    from pg_inherits
+                           join pg_class child on child.oid = pg_inherits.inhrelid
+                           join pg_class parent on parent.oid = pg_inherits.inhparent
+                           join pg_namespace ns on ns.oid = parent.relnamespace
+                    where ns.nspname = 'oauth'
+                      and parent.relname = 'history_access_token')
+  LOOP
+    EXECUTE format('create index %I on oauth.%I (expires_at)', 'idx_' || partition || '_expires_at', partition);
+  END LOOP;
+END; $$;
+
+CREATE OR REPLACE FUNCTION oauth.create_history_access_token_partition(month timestamp)
+  RETURNS text AS $$
+DECLARE
+  start_at  timestamp := date_trunc('month', month);
+  end_at    timestamp := date_trunc('month', month) + interval '1 month';
+  partition text := 'history_access_token_' || to_char(month, 'YYYY_MM');
+BEGIN
+  PERFORM pg_advisory_xact_lock(hashtext('oauth.' || partition));
+  IF to_regclass('oauth.' || partition) IS NOT NULL THEN
+    RETURN partition;
+  END IF;
+
+  EXECUTE format('create table oauth.%I (
+                    primary key (id),
+                    check (login_at >= %L and login_at < %L)
+                  ) inherits (oauth.history_access_token)', partition, start_at, end_at);
+  EXECUTE format('create index %I on oauth.%I (access_id)', 'idx_' || partition || '_access_id', partition);
+  EXECUTE format('create index %I on oauth.%I (user_name)', 'idx_' || partition || '_user_name', partition);
+  EXECUTE format('create index %I on oauth.%I (client_id)', 'idx_' || partition || '_client_id', partition);
+  EXECUTE format('create index %I on oauth.%I (login_at)', 'idx_' || partition || '_login_at', partition);
+  EXECUTE format('create index %I on oauth.%I (expires_at)', 'idx_' || partition || '_expires_at', partition);
+  RETURN partition;
+END; $$
+LANGUAGE 'plpgsql';
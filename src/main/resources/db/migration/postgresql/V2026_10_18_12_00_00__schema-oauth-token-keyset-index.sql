@@ -0,0 +1,53 @@
+-- keyset pagination of current access token ordered by (login_at, auth_id)
+create index idx_access_token_login_at_auth_id
+  on oauth.access_token (login_at, auth_id);
+
+-- keyset pagination of history ordered by (login_at, id), for all, by user, by client and by user and client,
+-- they replace single column index of user_name, client_id and login_at
+DO $$
+DECLARE
+  partition text;
+BEGIN
+  FOR partition IN (select child.relname
+                    from pg_inherits
+                           join pg_class child on child.oid = pg_inherits.inhrelid
+                           join pg_class parent on parent.oid = pg_inherits.inhparent
+                           join pg_namespace ns on ns.oid = parent.relnamespace
+                    where ns.nspname = 'oauth'
+                      and parent.relname = 'history_access_token')
+  LOOP
+    EXECUTE format('create index %I on oauth.%I (login_at, id)', 'idx_' || partition || '_login_id', partition);
+    EXECUTE format('create index %I on oauth.%I (user_name, login_at, id)', 'idx_' || partition || '_user_login_id', partition);
+    EXECUTE format('create index %I on oauth.%I (client_id, login_at, id)', 'idx_' || partition || '_client_login_id', partition);
+    EXECUTE format('create index %I on oauth.%I (user_name, client_id, login_at, id)', 'idx_' || partition || '_user_client_login_id', partition);
+    EXECUTE format('drop index if exists oauth.%I', 'idx_' || partition || '_user_name');
+    EXECUTE format('drop index if exists oauth.%I', 'idx_' || partition || '_client_id');
+    EXECUTE format('drop index if exists oauth.%I', 'idx_' || partition || '_login_at');
+  END LOOP;
+END; $$;
+
+CREATE OR REPLACE FUNCTION oauth.create_history_access_token_partition(month timestamp)
+  RETURNS text AS $$
+DECLARE
+  start_at  timestamp := date_trunc('month', month);
+  end_at    timestamp := date_trunc('month', month) + interval '1 month';
+  partition text := 'history_access_token_' || to_char(month, 'YYYY_MM');
+BEGIN
+  PERFORM pg_advisory_xact_lock(hashtext('oauth.' || partition));
+  IF to_regclass('oauth.' || partition) IS NOT NULL THEN
+    RETURN partition;
+  END IF;
+
+  EXECUTE format('create table oauth.%I (
+                    primary key (id),
+                    check (login_at >= %L and login_at < %L)
+                  ) inherits (oauth.history_access_token)', partition, start_at, end_at);
+  EXECUTE format('create index %I on oauth.%I (access_id)', 'idx_' || partition || '_access_id', partition);
+  EXECUTE format('create index %I on oauth.%I (expires_at)', 'idx_' || partition || '_expires_at', partition);
+  EXECUTE format('create index %I on oauth.%I (login_at, id)', 'idx_' || partition || '_login_id', partition);
+  EXECUTE format('create index %I on oauth.%I (user_name, login_at, id)', 'idx_' || partition || '_user_login_id', partition);
+  EXECUTE format('create index %I on oauth.%I (client_id, login_at, id)', 'idx_' || partition || '_client_login_id', partition);
+  EXECUTE format('create index %I on oauth.%I (user_name, client_id, login_at, id)', 'idx_' || partition || '_user_client_login_id', partition);
+  RETURN partition;
+END; $$
+LANGUAGE 'plpgsql';
@@ -0,0 +1,6 @@
+-- menu tree lookup: roots by module, then children by parent
+create index idx_menu_resource_id_parent_id
+  on component.menu (resource_id, parent_id);
+
+create index idx_menu_parent_id
+  on component.menu (parent_id);
@@ -0,0 +1,43 @@
+-- notify menu cache of every node when menu, role mapping or user roles changed, payload is the table name
+CREATE OR REPLACE FUNCTION component.notify_menu_changed()
+  RETURNS trigger AS $$
+BEGIN
+  PERFORM pg_notify('menu_changed', TG_TABLE_SCHEMA || '.' || TG_TABLE_NAME);
+  RETURN NULL;
+END; $$
+LANGUAGE 'plpgsql';
+
+create trigger trg_menu_notify
+  after insert or update or delete or truncate
+  on component.menu
+  for each statement execute procedure component.notify_menu_changed();
+
+create trigger trg_menu_mapping_by_role_notify
+  after insert or update or delete or truncate
+  on component.menu_mapping_by_role
+  for each statement execute procedure component.notify_menu_changed();
+
+create trigger trg_users_menu_notify
+  after insert or update or delete or truncate
+  on auth.users
+  for each statement execute procedure component.notify_menu_changed();
+
+create trigger trg_user_privileges_menu_notify
+  after insert or update or delete or truncate
+  on auth.user_privileges
+  for each statement execute procedure component.notify_menu_changed();
+
+create trigger trg_privileges_menu_notify
+  after insert or update or delete or truncate
+  on auth.privileges
+  for each statement execute procedure component.notify_menu_changed();
+
+create trigger trg_authorities_menu_notify
+  after insert or update or delete or truncate
+  on auth.authorities
+  for each statement execute procedure component.notify_menu_changed();
+
+create trigger trg_roles_menu_notify
+  after insert or update or delete or truncate
+  on auth.roles
+  for each statement execute procedure component.notify_menu_changed();
@@ -0,0 +1,13 @@
+-- menu of module visible by roles: mapping looked up by role ids, then by menu for each visible menu
+create index idx_menu_mapping_by_role_role_id_menu_id
+  on component.menu_mapping_by_role (role_id, menu_id);
+
+create index idx_menu_mapping_by_role_menu_id
+  on component.menu_mapping_by_role (menu_id);
+
+-- menu was never filtered by role, keep existing menu without mapping visible to everyone by ROLE_PUBLIC
+insert into component.menu_mapping_by_role (id, role_id, menu_id, created_by, created_date)
+select uuid_generate_v4(), 0, menu.id, 'migration', now()
+from component.menu menu
+where exists(select 1 from auth.roles role where role.id = 0)
+  and not exists(select 1 from component.menu_mapping_by_role mapping where mapping.menu_id = menu.id);
@@ -0,0 +1,67 @@
+-- roles of every user resolved once, sudo user have every role
+create materialized view auth.user_roles as
+  select u.username       as username,
+         role.id          as role_id,
+         role.name        as role_name,
+         role.description as role_description
+  from auth.users u
+         join auth.user_privileges granted on u.id = granted.user_id
+         join auth.privileges privilege on granted.privilege_id = privilege.id
+         join auth.authorities authority on authority.privilege_id = privilege.id
+         join auth.roles role on authority.role_id = role.id
+  where u.is_sudo = false
+  union
+  select u.username, role.id, role.name, role.description
+  from auth.users u
+         cross join auth.roles role
+  where u.is_sudo = true;
+
+-- required by refresh concurrently, also the lookup by username
+create unique index uk_user_roles_username_role_id
+  on auth.user_roles (username, role_id);
+
+CREATE OR REPLACE FUNCTION auth.refresh_user_roles()
+  RETURNS trigger AS $$
+BEGIN
+  REFRESH MATERIALIZED VIEW CONCURRENTLY auth.user_roles;
+  RETURN NULL;
+END; $$
+LANGUAGE 'plpgsql';
+
+-- only column used by the view, login doesn't refresh anything
+create trigger trg_users_refresh_user_roles
+  after insert or update of id, username, is_sudo or delete or truncate
+  on auth.users
+  for each statement execute procedure auth.refresh_user_roles();
+
+create trigger trg_user_privileges_refresh_user_roles
+  after insert or update or delete or truncate
+  on auth.user_privileges
+  for each statement execute procedure auth.refresh_user_roles();
+
+create trigger trg_privileges_refresh_user_roles
+  after insert or update of id or delete or truncate
+  on auth.privileges
+  for each statement execute procedure auth.refresh_user_roles();
+
+create trigger trg_authorities_refresh_user_roles
+  after insert or update or delete or truncate
+  on auth.authorities
+  for each statement execute procedure auth.refresh_user_roles();
+
+create trigger trg_roles_refresh_user_roles
+  after insert or update or delete or truncate
+  on auth.roles
+  for each statement execute procedure auth.refresh_user_roles();
+
+-- same result as before, read from the view instead of looping the join
+CREATE OR REPLACE FUNCTION auth.authorization(uname character varying(100))
+  RETURNS TABLE(
+    username  character varying(100),
+    authority character varying(100)
+  ) AS $$
+  select user_roles.username, user_roles.role_name
+  from auth.user_roles
+  where user_roles.username = uname
+$$
+LANGUAGE 'sql' STABLE;
@@ -0,0 +1,5 @@
+-- menu without any role mapping is visible to every role, the ROLE_PUBLIC backfill would hide it from users without ROLE_PUBLIC
+delete
+from component.menu_mapping_by_role
+where role_id = 0
+  and created_by = 'migration';
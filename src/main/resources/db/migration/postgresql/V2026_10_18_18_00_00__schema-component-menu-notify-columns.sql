@@ -0,0 +1,14 @@
+-- menu cache only depends on user id, name and sudo flag, password or profile edit must not clear it on every node
+drop trigger trg_users_menu_notify on auth.users;
+
+create trigger trg_users_menu_notify
+  after insert or update of id, username, is_sudo or delete or truncate
+  on auth.users
+  for each statement execute procedure component.notify_menu_changed();
+
+drop trigger trg_privileges_menu_notify on auth.privileges;
+
+create trigger trg_privileges_menu_notify
+  after insert or update of id or delete or truncate
+  on auth.privileges
+  for each statement execute procedure component.notify_menu_changed();
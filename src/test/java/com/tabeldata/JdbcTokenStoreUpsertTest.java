@@ -0,0 +1,188 @@
+package com.tabeldata;
+
+import com.tabeldata.oauth.repository.JdbcTokenStoreCustomizer;
+import com.tabeldata.oauth.service.DefaultTokenService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        classes = OauthSSOApplication.class,
+        properties = {"oauth.token-store.history.async=false", "oauth.token-store.cache.enabled=false"})
+public class JdbcTokenStoreUpsertTest {
+
+    private static final String CLIENT_ID = "itime-registration";
+    private static final String USERNAME = "upsert-test-user";
+
+    @Autowired
+    private JdbcTokenStoreCustomizer tokenStore;
+    @Autowired
+    private DefaultTokenService tokenServices;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OAuth2Authentication authentication;
+
+    @Before
+    public void setUp() {
+        UsernamePasswordAuthenticationToken client = new UsernamePasswordAuthenticationToken(
+                CLIENT_ID, null, AuthorityUtils.NO_AUTHORITIES);
+        client.setDetails(new WebAuthenticationDetails(new MockHttpServletRequest()));
+        SecurityContextHolder.getContext().setAuthentication(client);
+
+        OAuth2Request request = new OAuth2Request(
+                Collections.singletonMap("grant_type", "password"), CLIENT_ID, null, true,
+                Collections.singleton("read"), null, null, null, null);
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken(
+                USERNAME, null, AuthorityUtils.createAuthorityList("ROLE_PUBLIC"));
+        this.authentication = new OAuth2Authentication(request, user);
+        deleteRows();
+    }
+
+    @After
+    public void cleanUp() {
+        deleteRows();
+        SecurityContextHolder.clearContext();
+    }
+
+    private void deleteRows() {
+        jdbcTemplate.update("delete from oauth.access_token where user_name = ?", USERNAME);
+        jdbcTemplate.update("delete from oauth.history_access_token where user_name = ?", USERNAME);
+    }
+
+    private DefaultOAuth2AccessToken newToken() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setExpiration(new Date(System.currentTimeMillis() + 3600_000L));
+        token.setScope(Collections.singleton("read"));
+        return token;
+    }
+
+    private List<Map<String, Object>> accessTokenRows() {
+        return jdbcTemplate.queryForList(
+                "select token_id, auth_id, user_name, client_id from oauth.access_token where user_name = ?", USERNAME);
+    }
+
+    private List<Map<String, Object>> historyRows() {
+        return jdbcTemplate.queryForList(
+                "select access_id, is_logout, logout_by from oauth.history_access_token where user_name = ? order by login_at",
+                USERNAME);
+    }
+
+    @Test
+    public void storeNewToken() {
+        DefaultOAuth2AccessToken token = newToken();
+        tokenStore.storeAccessToken(token, authentication);
+
+        assertEquals(1, accessTokenRows().size());
+        assertEquals(token, tokenStore.readAccessToken(token.getValue()));
+        assertEquals(authentication, tokenStore.readAuthentication(token.getValue()));
+        assertEquals(token, tokenStore.getAccessToken(authentication));
+        assertEquals(1, historyRows().size());
+        assertEquals(false, historyRows().get(0).get("is_logout"));
+    }
+
+    @Test
+    public void storeSameTokenAgainKeepHistory() {
+        DefaultOAuth2AccessToken token = newToken();
+        tokenStore.storeAccessToken(token, authentication);
+        tokenStore.storeAccessToken(token, authentication);
+
+        assertEquals(1, accessTokenRows().size());
+        assertEquals(token, tokenStore.readAccessToken(token.getValue()));
+        assertEquals(1, historyRows().size());
+        assertEquals(false, historyRows().get(0).get("is_logout"));
+    }
+
+    @Test
+    public void replaceTokenOfSameAuthentication() {
+        DefaultOAuth2AccessToken first = newToken();
+        DefaultOAuth2AccessToken second = newToken();
+        tokenStore.storeAccessToken(first, authentication);
+        tokenStore.storeAccessToken(second, authentication);
+
+        List<Map<String, Object>> rows = accessTokenRows();
+        assertEquals(1, rows.size());
+        assertNull(tokenStore.readAccessToken(first.getValue()));
+        assertEquals(second, tokenStore.readAccessToken(second.getValue()));
+
+        List<Map<String, Object>> history = historyRows();
+        assertEquals(2, history.size());
+        assertEquals(true, history.get(0).get("is_logout"));
+        assertEquals("timeout", history.get(0).get("logout_by"));
+        assertEquals(false, history.get(1).get("is_logout"));
+    }
+
+    @Test
+    public void concurrentFirstStoreClosesHistoryOfReplacedToken() throws Exception {
+        SecurityContext context = SecurityContextHolder.getContext();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                deleteRows();
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                List<Future<?>> stores = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    DefaultOAuth2AccessToken token = newToken();
+                    stores.add(executor.submit(() -> {
+                        SecurityContextHolder.setContext(context);
+                        try {
+                            barrier.await();
+                            tokenStore.storeAccessToken(token, authentication);
+                        } finally {
+                            SecurityContextHolder.clearContext();
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> store : stores) {
+                    store.get(30, TimeUnit.SECONDS);
+                }
+
+                List<Map<String, Object>> rows = accessTokenRows();
+                assertEquals(1, rows.size());
+                List<Map<String, Object>> history = historyRows();
+                assertEquals(2, history.size());
+                long open = history.stream().filter(row -> Boolean.FALSE.equals(row.get("is_logout"))).count();
+                assertEquals("round " + round, 1, open);
+                assertTrue(history.stream().anyMatch(row ->
+                        Boolean.FALSE.equals(row.get("is_logout")) && rows.get(0).get("token_id").equals(row.get("access_id"))));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reuseValidTokenIsNoop() {
+        OAuth2AccessToken first = tokenServices.createAccessToken(authentication);
+        List<Map<String, Object>> rows = accessTokenRows();
+        List<Map<String, Object>> history = historyRows();
+
+        OAuth2AccessToken second = tokenServices.createAccessToken(authentication);
+
+        assertEquals(first.getValue(), second.getValue());
+        assertEquals(rows, accessTokenRows());
+        assertEquals(history, historyRows());
+    }
+}
@@ -0,0 +1,180 @@
+package com.tabeldata;
+
+import com.tabeldata.configs.RequestQueryStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.common.util.JacksonJsonParser;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@SpringBootTest(classes = OauthSSOApplication.class)
+public class OAuth2GrantTypePasswordFlowTest {
+
+    private final static Logger console = LoggerFactory.getLogger(OAuth2GrantTypePasswordFlowTest.class);
+
+    private static final String CLIENT_ID = "password-flow-test";
+    private static final String CLIENT_SECRET = "123456";
+
+    /**
+     * sql budget of password grant on the request thread: client, user, roles, current token and store it.
+     * Raise it only with a reason, every statement here is paid by each login
+     */
+    private static final int PASSWORD_GRANT_MAX_STATEMENTS = 6;
+    /**
+     * the same user login again: client and roles are cached, valid token is reused without writing
+     */
+    private static final int PASSWORD_GRANT_REPEATED_MAX_STATEMENTS = 3;
+
+    @Autowired
+    private WebApplicationContext wac;
+
+    @Autowired
+    private FilterChainProxy springSecurityFilterChain;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setup() {
+        deleteClient();
+        seedClient();
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.wac)
+                .addFilter(springSecurityFilterChain).build();
+    }
+
+    @After
+    public void cleanUp() {
+        deleteClient();
+    }
+
+    /**
+     * test-only client with password and refresh_token grant, every scope and no application
+     * so the token is accepted by {@code /api/**}
+     */
+    private void seedClient() {
+        jdbcTemplate.update(
+                "insert into resource.client_details (id, name, password, is_auto_approve, token_expired_in_second, created_by)\n" +
+                        "values (?, ?, ?, true, 43200, 'test')",
+                CLIENT_ID, CLIENT_ID, passwordEncoder.encode(CLIENT_SECRET));
+        jdbcTemplate.update(
+                "insert into resource.client_detail_grant_types (id, client_id, grant_type, created_by)\n" +
+                        "select uuid_generate_v4(), ?, grant_type.id, 'test'\n" +
+                        "from oauth.grant_types grant_type\n" +
+                        "where grant_type.name in ('password', 'refresh_token')",
+                CLIENT_ID);
+        jdbcTemplate.update(
+                "insert into resource.client_detail_scopes (id, client_id, scope_id)\n" +
+                        "select uuid_generate_v4(), ?, scope.id\n" +
+                        "from oauth.client_scopes scope",
+                CLIENT_ID);
+    }
+
+    /**
+     * grant types and scopes go with the client by cascade
+     */
+    private void deleteClient() {
+        jdbcTemplate.update("delete from oauth.access_token where client_id = ?", CLIENT_ID);
+        jdbcTemplate.update("delete from oauth.history_access_token where client_id = ?", CLIENT_ID);
+        jdbcTemplate.update("delete from resource.client_details where id = ?", CLIENT_ID);
+    }
+
+    private String obtainAccessToken(String username, String password) throws Exception {
+        return obtainAccessToken(username, password, PASSWORD_GRANT_MAX_STATEMENTS);
+    }
+
+    private String obtainAccessToken(String username, String password, int maxStatements) throws Exception {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("grant_type", "password");
+        params.add("client_id", CLIENT_ID);
+        params.add("username", username);
+        params.add("password", password);
+
+        ResultActions result;
+        try (RequestQueryStats stats = RequestQueryStats.open()) {
+            result = mockMvc.perform(post("/oauth/token")
+                    .params(params)
+                    .with(httpBasic(CLIENT_ID, CLIENT_SECRET))
+                    .accept("application/json;charset=UTF-8"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/json;charset=UTF-8"));
+            stats.close();
+            console.info("password grant for {}: {}", username, stats);
+            assertTrue("password grant executed " + stats.getStatements() + " statements, budget " + maxStatements,
+                    stats.getStatements() <= maxStatements);
+            assertTrue("password grant borrowed more connections than statements: " + stats,
+                    stats.getConnections() <= stats.getStatements());
+        }
+
+        String resultString = result.andReturn().getResponse().getContentAsString();
+
+        JacksonJsonParser jsonParser = new JacksonJsonParser();
+        return jsonParser.parseMap(resultString).get("access_token").toString();
+    }
+
+    @Test
+    public void givenNoToken() throws Exception {
+        mockMvc.perform(get("/api/roles/list"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void givenTokenWithoutRoles() throws Exception {
+        String accessToken = obtainAccessToken("user", "password");
+        console.info("access token for user: {}", accessToken);
+        mockMvc.perform(
+                get("/api/roles/list")
+                        .accept(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                        .header("Authorization", "Bearer " + accessToken)
+        ).andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void repeatedLoginWithinBudget() throws Exception {
+        String first = obtainAccessToken("admin", "password");
+        String second = obtainAccessToken("admin", "password", PASSWORD_GRANT_REPEATED_MAX_STATEMENTS);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void givenTokenWithRightAuthorization() throws Exception {
+        String accessToken = obtainAccessToken("admin", "password");
+        console.info("access token for admin: {}", accessToken);
+        mockMvc.perform(
+                get("/api/roles/list")
+                        .accept(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                        .header("Authorization", "Bearer " + accessToken)
+        ).andExpect(status().isOk());
+    }
+
+}
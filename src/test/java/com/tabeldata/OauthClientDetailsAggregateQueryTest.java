@@ -0,0 +1,53 @@
+package com.tabeldata;
+
+import com.tabeldata.oauth.models.OauthClientDetails;
+import com.tabeldata.oauth.repository.OauthClientDetailsRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = OauthSSOApplication.class)
+public class OauthClientDetailsAggregateQueryTest {
+
+    @Autowired
+    private OauthClientDetailsRepository repository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OauthClientDetails loadByFiveQueries(String clientId) {
+        OauthClientDetails client = repository.getResourceByClientId(clientId);
+        client.setApplications(repository.getApplicationByClientId(clientId));
+        client.setOauthGrantTypes(repository.getGrantTypeByClientId(clientId));
+        client.setRedirectUrls(repository.getRedirectUrlsByClientId(clientId));
+        client.setOauthScopes(repository.getScopesByClientId(clientId));
+        return client;
+    }
+
+    private OauthClientDetails sorted(OauthClientDetails client) {
+        client.getApplications().sort(Comparator.comparing(app -> app.getId()));
+        client.getOauthGrantTypes().sort(Comparator.comparing(grant -> grant.getId()));
+        client.getOauthScopes().sort(Comparator.comparing(scope -> scope.getId()));
+        client.getRedirectUrls().sort(Comparator.naturalOrder());
+        return client;
+    }
+
+    @Test
+    public void aggregateEqualsFiveQueries() {
+        List<String> clients = jdbcTemplate.queryForList("select name from resource.client_details", String.class);
+        for (String clientId : clients) {
+            assertEquals(
+                    clientId,
+                    sorted(loadByFiveQueries(clientId)),
+                    sorted(repository.getClientDetailsAggregateByClientId(clientId)));
+        }
+    }
+}
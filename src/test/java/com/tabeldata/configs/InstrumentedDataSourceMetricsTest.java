@@ -0,0 +1,115 @@
+package com.tabeldata.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class InstrumentedDataSourceMetricsTest {
+
+    private static final String SQL = "/* token.selectAccessToken */ select token_id, token from oauth.access_token";
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private DataSource target;
+    private PreparedStatement statement;
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        dataSource = new InstrumentedDataSource(
+                target, new JdbcStatementMetrics(beanFactory.getBeanProvider(MeterRegistry.class), false));
+    }
+
+    @Test
+    public void nameFromLeadingComment() {
+        assertEquals("token.selectAccessToken", JdbcStatementMetrics.nameOf(SQL));
+        assertEquals("client.scopes", JdbcStatementMetrics.nameOf("  /*client.scopes*/select 1"));
+        assertEquals(JdbcStatementMetrics.UNNAMED, JdbcStatementMetrics.nameOf("select 1 /* not.leading */"));
+        assertEquals(JdbcStatementMetrics.UNNAMED, JdbcStatementMetrics.nameOf("/* has space */ select 1"));
+        assertEquals(JdbcStatementMetrics.UNNAMED, JdbcStatementMetrics.nameOf(null));
+    }
+
+    @Test
+    public void recordQueryRowsAndBlobBytes() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getBytes(2)).thenReturn(new byte[100], new byte[50]);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rs.getBytes(2);
+            }
+        }
+
+        assertEquals(1, registry.get("jdbc.statement")
+                .tags("name", "token.selectAccessToken", "outcome", "success").timer().count());
+        assertEquals(2, registry.get("jdbc.statement.rows")
+                .tag("name", "token.selectAccessToken").summary().totalAmount(), 0);
+        assertEquals(150, registry.get("jdbc.statement.blob.bytes")
+                .tag("name", "token.selectAccessToken").summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void recordUpdateCountAndError() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(3).thenThrow(new SQLException("duplicate", "23505"));
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("/* token.deleteAccessToken */ delete")) {
+            ps.executeUpdate();
+            try {
+                ps.executeUpdate();
+                fail("error should be thrown as is");
+            } catch (SQLException expected) {
+                assertEquals("23505", expected.getSQLState());
+            }
+        }
+
+        assertEquals(3, registry.get("jdbc.statement.rows")
+                .tag("name", "token.deleteAccessToken").summary().totalAmount(), 0);
+        assertEquals(1, registry.get("jdbc.statement.errors")
+                .tag("name", "token.deleteAccessToken").counter().count(), 0);
+        assertEquals(1, registry.get("jdbc.statement")
+                .tags("name", "token.deleteAccessToken", "outcome", "error").timer().count());
+    }
+
+    @Test
+    public void countIntoRequestStatsOfCurrentThread() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1);
+
+        try (RequestQueryStats request = RequestQueryStats.open()) {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("/* token.deleteAccessToken */ delete")) {
+                ps.executeUpdate();
+                try (RequestQueryStats nested = RequestQueryStats.open()) {
+                    ps.executeUpdate();
+                    assertEquals(1, nested.getStatements());
+                    assertEquals(0, nested.getConnections());
+                }
+            }
+            assertEquals(2, request.getStatements());
+            assertEquals(1, request.getConnections());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.tabeldata.oauth.codec;
+
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TokenCodecRoundTripTest {
+
+    private final CompactTokenCodec compact = new CompactTokenCodec();
+    private final JdkSerializationTokenCodec jdk = new JdkSerializationTokenCodec();
+
+    static DefaultOAuth2AccessToken accessToken() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setExpiration(new Date(System.currentTimeMillis() + 3600_000L));
+        token.setScope(new LinkedHashSet<>(Arrays.asList("read", "write")));
+        token.setRefreshToken(new DefaultExpiringOAuth2RefreshToken(
+                UUID.randomUUID().toString(), new Date(System.currentTimeMillis() + 86400_000L)));
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("user_name", "admin");
+        info.put("authorities", Arrays.asList("ROLE_ADMIN", "ROLE_USER"));
+        info.put("login_count", 3);
+        token.setAdditionalInformation(info);
+        return token;
+    }
+
+    static OAuth2Authentication authentication() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("grant_type", "password");
+        parameters.put("username", "admin");
+        OAuth2Request request = new OAuth2Request(
+                parameters,
+                "client-code",
+                AuthorityUtils.createAuthorityList("ROLE_CLIENT"),
+                true,
+                new LinkedHashSet<>(Arrays.asList("read", "write")),
+                Collections.singleton("resource-api"),
+                null,
+                Collections.emptySet(),
+                Collections.emptyMap());
+        User principal = new User("admin", "secret", AuthorityUtils.createAuthorityList("ROLE_ADMIN", "ROLE_USER"));
+        principal.eraseCredentials();
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities());
+        Map<String, String> details = new LinkedHashMap<>();
+        details.put("username", "admin");
+        user.setDetails(details);
+        return new OAuth2Authentication(request, user);
+    }
+
+    @Test
+    public void accessTokenRoundTrip() {
+        DefaultOAuth2AccessToken token = accessToken();
+        OAuth2AccessToken decoded = compact.decodeAccessToken(compact.encodeAccessToken(token));
+
+        assertEquals(token, decoded);
+        assertEquals(token.getExpiration(), decoded.getExpiration());
+        assertEquals(token.getScope(), decoded.getScope());
+        assertEquals(token.getTokenType(), decoded.getTokenType());
+        assertEquals(token.getRefreshToken(), decoded.getRefreshToken());
+        assertEquals(token.getAdditionalInformation(), decoded.getAdditionalInformation());
+        assertEquals(token.getValue(), compact.decodeAccessTokenValue(compact.encodeAccessToken(token)));
+    }
+
+    @Test
+    public void authenticationRoundTrip() {
+        OAuth2Authentication authentication = authentication();
+        OAuth2Authentication decoded = compact.decodeAuthentication(compact.encodeAuthentication(authentication));
+
+        assertEquals(authentication, decoded);
+        assertEquals(authentication.getName(), decoded.getName());
+        assertEquals(authentication.getAuthorities(), decoded.getAuthorities());
+        assertNull(((User) decoded.getPrincipal()).getPassword());
+    }
+
+    @Test
+    public void clientOnlyAuthenticationRoundTrip() {
+        OAuth2Authentication authentication = new OAuth2Authentication(authentication().getOAuth2Request(), null);
+        OAuth2Authentication decoded = compact.decodeAuthentication(compact.encodeAuthentication(authentication));
+
+        assertTrue(decoded.isClientOnly());
+        assertEquals(authentication, decoded);
+    }
+
+    @Test
+    public void readLegacyFormat() {
+        DefaultOAuth2AccessToken token = accessToken();
+        OAuth2Authentication authentication = authentication();
+
+        assertEquals(token, compact.decodeAccessToken(jdk.encodeAccessToken(token)));
+        assertEquals(token.getRefreshToken(), compact.decodeRefreshToken(jdk.encodeRefreshToken(token.getRefreshToken())));
+        assertEquals(authentication, compact.decodeAuthentication(jdk.encodeAuthentication(authentication)));
+    }
+
+    @Test
+    public void smallerThanLegacyFormat() {
+        assertTrue(compact.encodeAccessToken(accessToken()).length < jdk.encodeAccessToken(accessToken()).length);
+        assertTrue(compact.encodeAuthentication(authentication()).length < jdk.encodeAuthentication(authentication()).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectCorruptedValue() {
+        byte[] bytes = compact.encodeAccessToken(accessToken());
+        compact.decodeAccessToken(Arrays.copyOf(bytes, bytes.length / 2));
+    }
+}
@@ -0,0 +1,84 @@
+package com.tabeldata.oauth.repository;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class TokenKeyHasherCompatibilityTest {
+
+    private final TokenKeyHasher md5 = new TokenKeyHasher(TokenKeyHasher.MD5);
+    private final TokenKeyHasher sha256 = new TokenKeyHasher(TokenKeyHasher.SHA_256);
+
+    private static String legacy(String algorithm, String value) throws Exception {
+        byte[] bytes = MessageDigest.getInstance(algorithm).digest(value.getBytes(StandardCharsets.UTF_8));
+        return String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void sameKeyAsLegacyMd5() throws Exception {
+        String[] values = {
+                "",
+                UUID.randomUUID().toString(),
+                "token dengan spasi dan ünicode ✓",
+                repeat(UUID.randomUUID().toString(), 40),
+                repeat("x", 70_000),
+                repeat("é", 2000)
+        };
+        for (String value : values) {
+            assertEquals(legacy("MD5", value), md5.hash(value));
+            assertEquals(legacy("SHA-256", value), sha256.hash(value));
+        }
+        assertNull(md5.hash(null));
+    }
+
+    @Test
+    public void digestStateNotLeakBetweenCalls() throws Exception {
+        String value = UUID.randomUUID().toString();
+        md5.hash(repeat("ü", 10));
+        md5.hash(repeat("a", 5000));
+        assertEquals(legacy("MD5", value), md5.hash(value));
+    }
+
+    @Test
+    public void concurrentHashing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CompletionService<Boolean> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < 8; i++) {
+                completion.submit(() -> {
+                    for (int j = 0; j < 2000; j++) {
+                        String value = UUID.randomUUID().toString();
+                        if (!legacy("MD5", value).equals(md5.hash(value))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (int i = 0; i < 8; i++) {
+                assertTrue(completion.take().get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownAlgorithm() {
+        new TokenKeyHasher("MD-42");
+    }
+}